@@ -0,0 +1,62 @@
+package catpoint.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.ImagePreprocessor;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shrinking a 1080p camera frame to the recognizer's size, compared with the
+ * getScaledInstance(SCALE_SMOOTH) path the image panel used to take.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ImagePreprocessorBenchmark {
+
+    private final ImagePreprocessor preprocessor = new ImagePreprocessor(640, 480);
+    private BufferedImage frame;
+
+    @Setup
+    public void setUp() {
+        //decoded JPEGs come out of ImageIO as 3 byte BGR
+        frame = new BufferedImage(1920, 1080, BufferedImage.TYPE_3BYTE_BGR);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for(int y = 0; y < frame.getHeight(); y++) {
+            for(int x = 0; x < frame.getWidth(); x++) {
+                frame.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+    }
+
+    @Benchmark
+    public BufferedImage areaAveraging() {
+        return preprocessor.process(frame);
+    }
+
+    @Benchmark
+    public BufferedImage scaledInstance() {
+        Image scaled = frame.getScaledInstance(640, 360, Image.SCALE_SMOOTH);
+        BufferedImage target = new BufferedImage(640, 360, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        graphics.drawImage(scaled, 0, 0, null);
+        graphics.dispose();
+        return target;
+    }
+}
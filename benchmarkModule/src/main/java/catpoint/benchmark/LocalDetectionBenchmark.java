@@ -0,0 +1,65 @@
+package catpoint.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.LocalCatModel;
+import service.LocalImageService;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cat detection on the local CPU with the model fitted to the sample images, so the detection
+ * stage can be measured offline and with the same verdicts on every run. Frames are camera-sized
+ * noise; their verdicts don't matter here, only the time it takes to reach them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LocalDetectionBenchmark {
+
+    private static final int FRAMES = 16;
+
+    private LocalImageService imageService;
+    private final List<BufferedImage> frames = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        imageService = new LocalImageService(LocalCatModel.defaultModel());
+        //decoded JPEGs come out of ImageIO as 3 byte BGR
+        Random random = new Random(1);
+        for(int i = 0; i < FRAMES; i++) {
+            BufferedImage frame = new BufferedImage(640, 480, BufferedImage.TYPE_3BYTE_BGR);
+            for(int y = 0; y < frame.getHeight(); y++) {
+                for(int x = 0; x < frame.getWidth(); x++) {
+                    frame.setRGB(x, y, random.nextInt(0x1000000));
+                }
+            }
+            frames.add(frame);
+        }
+    }
+
+    @Benchmark
+    public boolean imageContainsCat() {
+        return imageService.imageContainsCat(frames.get(0), 50.0f);
+    }
+
+    @Benchmark
+    public List<Boolean> imagesContainCat() {
+        return imageService.imagesContainCat(frames, 50.0f);
+    }
+}
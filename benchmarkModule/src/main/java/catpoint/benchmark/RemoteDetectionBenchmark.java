@@ -0,0 +1,71 @@
+package catpoint.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import service.AwsImageService;
+import service.ConcurrencyLimitedImageService;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to get verdicts for a burst of frames from a remote recognizer with a fixed round trip,
+ * served by {@link StubRekognitionServer}, at different caps on the requests in flight.
+ *
+ * Run on Java 21 or later to measure virtual threads; older runtimes fall back to a platform
+ * thread per slot. Caps above the SDK's HTTP connection pool (50 by default) wait in the client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RemoteDetectionBenchmark {
+
+    private static final int FRAMES = 256;
+    private static final long ROUND_TRIP_MILLIS = 50;
+
+    @Param({"8", "32", "256"})
+    public int maxInFlight;
+
+    private StubRekognitionServer stub;
+    private AwsImageService remote;
+    private ConcurrencyLimitedImageService imageService;
+    private final List<BufferedImage> frames = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws IOException {
+        stub = new StubRekognitionServer(ROUND_TRIP_MILLIS, true);
+        remote = new AwsImageService(stub.getEndpoint(), "us-east-2", "stub", "stub");
+        imageService = new ConcurrencyLimitedImageService(remote, maxInFlight, TimeUnit.MINUTES.toMillis(1));
+        for(int i = 0; i < FRAMES; i++) {
+            frames.add(new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        imageService.shutdown();
+        remote.shutdown();
+        stub.close();
+    }
+
+    @Benchmark
+    public List<Boolean> burst() {
+        return imageService.imagesContainCat(frames, 50.0f);
+    }
+}
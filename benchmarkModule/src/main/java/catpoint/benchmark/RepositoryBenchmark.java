@@ -0,0 +1,128 @@
+package catpoint.benchmark;
+
+import catpoint.data.LogFileSecurityRepositoryImpl;
+import catpoint.data.PretendDatabaseSecurityRepositoryImpl;
+import catpoint.data.SecurityRepository;
+import catpoint.data.Sensor;
+import catpoint.data.SensorStorageMode;
+import catpoint.data.SensorType;
+import catpoint.data.WriteBehindSecurityRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+import java.util.stream.Stream;
+
+/**
+ * Cost of adding and updating one sensor as the installation grows.
+ *
+ * The single-blob preferences layout is left out: past a few hundred sensors the serialized set
+ * no longer fits into one preferences value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RepositoryBenchmark {
+
+    public enum RepositoryKind {
+        PREFERENCES, LOG_FILE, WRITE_BEHIND
+    }
+
+    @Param({"10", "1000", "100000"})
+    public int sensorCount;
+
+    @Param({"PREFERENCES", "LOG_FILE", "WRITE_BEHIND"})
+    public RepositoryKind repositoryKind;
+
+    private Preferences node;
+    private Path directory;
+    private SecurityRepository repository;
+    private final List<Sensor> sensors = new ArrayList<>();
+    private final List<Sensor> added = new ArrayList<>();
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        node = Preferences.userRoot().node("catpoint-benchmark/repository-" + System.nanoTime());
+        directory = Files.createTempDirectory("catpoint-benchmark");
+        switch(repositoryKind) {
+            case PREFERENCES -> repository = new PretendDatabaseSecurityRepositoryImpl(node, SensorStorageMode.PER_SENSOR);
+            case LOG_FILE -> repository = new LogFileSecurityRepositoryImpl(directory);
+            case WRITE_BEHIND -> repository = new WriteBehindSecurityRepository(
+                    new PretendDatabaseSecurityRepositoryImpl(node, SensorStorageMode.PER_SENSOR), 500, 1024);
+        }
+        for(int i = 0; i < sensorCount; i++) {
+            Sensor sensor = newSensor(i);
+            repository.addSensor(sensor);
+            sensors.add(sensor);
+        }
+        repository.flush();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException, BackingStoreException {
+        if(repository instanceof WriteBehindSecurityRepository) {
+            ((WriteBehindSecurityRepository) repository).shutdown();
+        } else if(repository instanceof LogFileSecurityRepositoryImpl) {
+            ((LogFileSecurityRepositoryImpl) repository).close();
+        }
+        node.removeNode();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for(Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Takes the sensors added during an iteration out again, so every iteration starts at sensorCount.
+     */
+    @TearDown(Level.Iteration)
+    public void removeAddedSensors() {
+        added.forEach(repository::removeSensor);
+        added.clear();
+        repository.flush();
+    }
+
+    @Benchmark
+    public Sensor addSensor() {
+        Sensor sensor = newSensor(sensorCount + added.size());
+        repository.addSensor(sensor);
+        added.add(sensor);
+        return sensor;
+    }
+
+    @Benchmark
+    public Sensor updateSensor() {
+        Sensor sensor = sensors.get(next++ % sensorCount);
+        sensor.setActive(!sensor.getActive());
+        repository.updateSensor(sensor);
+        return sensor;
+    }
+
+    private static Sensor newSensor(int i) {
+        return new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length]);
+    }
+}
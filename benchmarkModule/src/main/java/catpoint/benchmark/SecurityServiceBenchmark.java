@@ -0,0 +1,96 @@
+package catpoint.benchmark;
+
+import catpoint.data.AlarmStatus;
+import catpoint.data.PretendDatabaseSecurityRepositoryImpl;
+import catpoint.data.Sensor;
+import catpoint.data.SensorStorageMode;
+import catpoint.data.SensorType;
+import catpoint.data.service.FakeImageService;
+import catpoint.service.SecurityService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * Hot paths of SecurityService, driven the way the GUI drives them: a preferences backed
+ * repository and the fake image service.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SecurityServiceBenchmark {
+
+    private static final int SENSOR_COUNT = 100;
+
+    private Preferences node;
+    private SecurityService securityService;
+    private final List<Sensor> sensors = new ArrayList<>();
+    private final BufferedImage frame = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+    private int next;
+
+    @Setup
+    public void setUp() {
+        node = Preferences.userRoot().node("catpoint-benchmark/service-" + System.nanoTime());
+        securityService = new SecurityService(new PretendDatabaseSecurityRepositoryImpl(node, SensorStorageMode.PER_SENSOR), new FakeImageService());
+        for(int i = 0; i < SENSOR_COUNT; i++) {
+            Sensor sensor = new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length]);
+            securityService.addSensor(sensor);
+            sensors.add(sensor);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws BackingStoreException {
+        securityService.shutdown();
+        node.removeNode();
+    }
+
+    @Benchmark
+    public Sensor changeSensorActivationStatus() {
+        Sensor sensor = sensors.get(next++ % SENSOR_COUNT);
+        securityService.changeSensorActivationStatus(sensor, !sensor.getActive());
+        return sensor;
+    }
+
+    @Benchmark
+    public AlarmStatus catDetected() {
+        return securityService.catDetected((next++ & 1) == 0);
+    }
+
+    /**
+     * Every frame is analyzed; the frame difference gate is switched off.
+     */
+    @Benchmark
+    public AlarmStatus processImage() {
+        securityService.setFrameDifferenceGate(null);
+        securityService.processImage(frame);
+        return securityService.getAlarmStatus();
+    }
+
+    /**
+     * The same frame over and over, so the frame difference gate skips analysis after the first.
+     */
+    @Benchmark
+    public AlarmStatus processImageUnchangedFrame() {
+        securityService.processImage(frame);
+        return securityService.getAlarmStatus();
+    }
+}
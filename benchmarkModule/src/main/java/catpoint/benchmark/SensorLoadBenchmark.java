@@ -0,0 +1,81 @@
+package catpoint.benchmark;
+
+import catpoint.data.MappedSensorSnapshot;
+import catpoint.data.Sensor;
+import catpoint.data.SensorType;
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup cost of loading the sensor set: parsing the legacy SENSORS JSON blob with Gson, compared
+ * with mapping a {@link MappedSensorSnapshot} and decoding every sensor from it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SensorLoadBenchmark {
+
+    private static final Gson gson = new Gson();
+    private static final Type SENSOR_SET = new TypeToken<Set<Sensor>>() {
+    }.getType();
+
+    @Param({"10", "1000", "100000"})
+    public int sensorCount;
+
+    private String json;
+    private Path snapshotFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        Set<Sensor> sensors = new TreeSet<>();
+        for(int i = 0; i < sensorCount; i++) {
+            sensors.add(new Sensor("Sensor " + i, SensorType.values()[i % SensorType.values().length]));
+        }
+        json = gson.toJson(sensors);
+        snapshotFile = Files.createTempFile("sensors", ".snapshot");
+        MappedSensorSnapshot.write(snapshotFile, sensors, 1L);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    @Benchmark
+    public Set<Sensor> gsonBlob() {
+        return gson.fromJson(json, SENSOR_SET);
+    }
+
+    @Benchmark
+    public Set<Sensor> mappedSnapshot() throws IOException {
+        MappedSensorSnapshot snapshot = MappedSensorSnapshot.open(snapshotFile);
+        Set<Sensor> sensors = new TreeSet<>();
+        for(int i = 0; i < snapshot.size(); i++) {
+            sensors.add(snapshot.get(i));
+        }
+        return sensors;
+    }
+}
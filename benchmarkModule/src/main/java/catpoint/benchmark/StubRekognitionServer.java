@@ -0,0 +1,116 @@
+package catpoint.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Rekognition DetectLabels API, so remote detection can be load tested
+ * offline. Point an AwsImageService at {@link #getEndpoint()}; every request is answered with the
+ * same label after a fixed delay. Delayed responses are completed by a timer rather than a
+ * sleeping thread, so the stub itself holds thousands of requests in flight on a few threads.
+ */
+public class StubRekognitionServer implements AutoCloseable {
+
+    private static final String CONTENT_TYPE = "application/x-amz-json-1.1";
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final ScheduledExecutorService responder;
+    private final long latencyMillis;
+    private final byte[] response;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    /**
+     * Starts the stub on a free port on the loopback interface.
+     * @param latencyMillis Time every request takes
+     * @param cat True to answer every request with a cat, false with a dog
+     */
+    public StubRekognitionServer(long latencyMillis, boolean cat) throws IOException {
+        this(0, latencyMillis, cat);
+    }
+
+    public StubRekognitionServer(int port, long latencyMillis, boolean cat) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.response = ("{\"LabelModelVersion\":\"2.0\",\"Labels\":[{\"Name\":\"" + (cat ? "Cat" : "Dog")
+                + "\",\"Confidence\":97.5,\"Instances\":[],\"Parents\":[]}]}").getBytes(StandardCharsets.UTF_8);
+        this.handlers = Executors.newFixedThreadPool(4);
+        this.responder = Executors.newScheduledThreadPool(2);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 4096);
+        server.createContext("/", this::handle);
+        server.setExecutor(handlers);
+        server.start();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            body.readAllBytes(); //the frame itself doesn't matter
+        }
+        requests.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        responder.schedule(() -> respond(exchange), latencyMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void respond(HttpExchange exchange) {
+        try (OutputStream out = exchange.getResponseBody()) {
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.getResponseHeaders().set("x-amzn-RequestId", UUID.randomUUID().toString());
+            exchange.sendResponseHeaders(200, response.length);
+            out.write(response);
+        } catch (IOException ioe) {
+            //client went away, nothing to answer
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    public URI getEndpoint() {
+        return URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return Most requests that were waiting for their response at the same time
+     */
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        responder.shutdownNow();
+        handlers.shutdownNow();
+    }
+
+    /**
+     * Runs the stub until the process is stopped.
+     * Arguments: port (default 8080), latency in milliseconds (default 100).
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        long latency = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        StubRekognitionServer stub = new StubRekognitionServer(port, latency, true);
+        System.out.println("Stub Rekognition listening on " + stub.getEndpoint());
+    }
+}
@@ -9,5 +9,6 @@ module imageModule {
     requires software.amazon.awssdk.regions;
     requires software.amazon.awssdk.services.rekognition;
     requires java.desktop;
+    requires transitive metricsModule;
 
 }
\ No newline at end of file
@@ -12,12 +12,19 @@ import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
 import software.amazon.awssdk.services.rekognition.model.Image;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
@@ -37,12 +44,35 @@ public class AwsImageService implements ImageServiceInterface {
 
     private Logger log = LoggerFactory.getLogger(AwsImageService.class);
 
-    //aws recommendation is to maintain only a single instance of client objects
-    private static RekognitionClient rekognitionClient;
+    //aws recommendation is to maintain only a single instance of client objects, so one per service,
+    //shared by all threads; it is null if the service could not be configured
+    private RekognitionClient rekognitionClient;
+
+    //frames in a batch are sent concurrently over the shared client, which is thread safe
+    private static final int BATCH_PARALLELISM = 8;
+    private final ExecutorService batchExecutor = Executors.newFixedThreadPool(BATCH_PARALLELISM, r -> {
+        Thread thread = new Thread(r, "rekognition-batch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    //Rekognition analyzes labels at a fraction of camera resolution, so larger frames only cost upload time
+    private static final int RECOGNITION_WIDTH = 640;
+    private static final int RECOGNITION_HEIGHT = 480;
+    private volatile ImagePreprocessor preprocessor = new ImagePreprocessor(RECOGNITION_WIDTH, RECOGNITION_HEIGHT);
+
+    //encoders and their output arrays are shared by all calls rather than kept per thread, so they are
+    //reused even when every request runs on a new (e.g. virtual) thread; at most this many are kept idle
+    private static final int IDLE_ENCODERS = 16;
+    private final BlockingQueue<JpegEncoder> idleEncoders = new ArrayBlockingQueue<>(IDLE_ENCODERS);
 
     public AwsImageService() {
         Properties props = new Properties();
         try (InputStream is = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            if(is == null) {
+                log.error("Unable to initialize AWS Rekognition, no properties file found");
+                return;
+            }
             props.load(is);
         } catch (IOException ioe ) {
             log.error("Unable to initialize AWS Rekognition, no properties file found", ioe);
@@ -60,6 +90,20 @@ public class AwsImageService implements ImageServiceInterface {
                 .build();
     }
 
+    /**
+     * Creates a service that sends its requests to the given endpoint rather than the region's public
+     * one, e.g. a VPC endpoint or a local stub for offline load tests.
+     * @param endpoint Base URI of the Rekognition API, e.g. http://localhost:8080
+     */
+    public AwsImageService(URI endpoint, String awsRegion, String awsId, String awsSecret) {
+        AwsCredentials awsCredentials = AwsBasicCredentials.create(awsId, awsSecret);
+        rekognitionClient = RekognitionClient.builder()
+                .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
+                .region(Region.of(awsRegion))
+                .endpointOverride(endpoint)
+                .build();
+    }
+
     /**
      * Returns true if the provided image contains a cat.
      * @param image Image to scan
@@ -68,20 +112,96 @@ public class AwsImageService implements ImageServiceInterface {
      */
     @Override
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
-        Image awsImage = null;
-        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-            ImageIO.write(image, "jpg", os);
-            awsImage = Image.builder().bytes(SdkBytes.fromByteArray(os.toByteArray())).build();
+        SdkBytes bytes = encode(preprocessor.process(image));
+        return bytes != null && detectCat(bytes, confidenceThreshhold);
+    }
+
+    /**
+     * Sends the JPEG bytes untouched, without decoding, re-encoding or copying them, unless the
+     * preprocessor would crop or shrink the frame; then the decoded frame is processed and encoded as
+     * in imageContainsCat.
+     */
+    @Override
+    public boolean jpegContainsCat(byte[] jpeg, BufferedImage image, float confidenceThreshhold) {
+        BufferedImage processed = preprocessor.process(image);
+        SdkBytes bytes = processed == image ? SdkBytes.fromByteArrayUnsafe(jpeg) : encode(processed);
+        return bytes != null && detectCat(bytes, confidenceThreshhold);
+    }
+
+    /**
+     * @return The image JPEG encoded, or null if it couldn't be encoded
+     */
+    private SdkBytes encode(BufferedImage image) {
+        JpegEncoder encoder = idleEncoders.poll();
+        if(encoder == null) {
+            encoder = new JpegEncoder();
+        }
+        try {
+            //SdkBytes copies the encoded frame out of the encoder's buffer, which is reused for the next frame
+            return SdkBytes.fromByteBuffer(encoder.encode(image));
         } catch (IOException ioe) {
             log.error("Error building image byte array", ioe);
-            return false;
+            return null;
+        } finally {
+            idleEncoders.offer(encoder); //dropped if enough encoders are idle already
         }
+    }
+
+    /**
+     * Replaces the stage that crops and scales frames before they are encoded, e.g. to set a region of interest.
+     */
+    public void setPreprocessor(ImagePreprocessor preprocessor) {
+        this.preprocessor = preprocessor;
+    }
+
+    /**
+     * Sends the encoded frame to Rekognition. Package private so tests can stand in for the service.
+     */
+    boolean detectCat(SdkBytes bytes, float confidenceThreshhold) {
+        if(rekognitionClient == null) {
+            throw new IllegalStateException("AWS Rekognition is not configured, see config.properties");
+        }
+        Image awsImage = Image.builder().bytes(bytes).build();
         DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(confidenceThreshhold).build();
         DetectLabelsResponse response = rekognitionClient.detectLabels(detectLabelsRequest);
         logLabelsForFun(response);
         return response.labels().stream().filter(l -> l.name().toLowerCase().contains("cat")).findFirst().isPresent();
     }
 
+    /**
+     * Scans the frames concurrently, up to a fixed number of requests in flight at once.
+     */
+    @Override
+    public List<Boolean> imagesContainCat(List<BufferedImage> images, float confidenceThreshhold) {
+        if(images.size() <= 1) {
+            return ImageServiceInterface.super.imagesContainCat(images, confidenceThreshhold);
+        }
+        List<CompletableFuture<Boolean>> requests = images.stream()
+                .map(image -> CompletableFuture.supplyAsync(() -> imageContainsCat(image, confidenceThreshhold), batchExecutor))
+                .collect(Collectors.toList());
+        List<Boolean> verdicts = new ArrayList<>(images.size());
+        try {
+            requests.forEach(request -> verdicts.add(request.join()));
+        } catch (CompletionException exception) {
+            if(exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw exception;
+        }
+        return verdicts;
+    }
+
+    /**
+     * Stops the batch threads and closes the Rekognition client. Batches already running finish
+     * normally; requests made afterwards fail.
+     */
+    public void shutdown() {
+        batchExecutor.shutdown();
+        if(rekognitionClient != null) {
+            rekognitionClient.close();
+        }
+    }
+
     private void logLabelsForFun(DetectLabelsResponse response) {
         log.info(response.labels().stream()
                 .map(label -> String.format("%s(%.1f%%)", label.name(), label.confidence()))
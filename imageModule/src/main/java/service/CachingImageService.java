@@ -0,0 +1,226 @@
+package service;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Decorator that remembers verdicts by {@link PerceptualHash} so runs of near-identical camera
+ * frames only reach the underlying service once. Entries expire after a fixed time and the
+ * least recently used entry is evicted once the cache is full. Optionally a frame whose hash differs
+ * from a cached one in only a few bits counts as the same frame, which also catches near-duplicates
+ * that land on the other side of a hash bit.
+ *
+ * Verdicts are reused across thresholds only where they still hold: a cat found at 80% confidence
+ * is also a cat at 50%, and no cat at 50% means no cat at 80%. Anything else is a cache miss.
+ * This assumes the delegate is deterministic, so it is not useful around FakeImageService.
+ */
+public class CachingImageService implements ImageServiceInterface {
+
+    private final ImageServiceInterface delegate;
+    private final long ttlNanos;
+    private final int maxDistance;
+    private final Map<Long, CachedVerdict> cache;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param delegate Service asked on a cache miss
+     * @param maxEntries Number of distinct frames to remember
+     * @param ttlMillis How long a verdict stays valid
+     */
+    public CachingImageService(ImageServiceInterface delegate, int maxEntries, long ttlMillis) {
+        this(delegate, maxEntries, ttlMillis, 0);
+    }
+
+    /**
+     * @param maxDistance Number of hash bits in which a frame may differ from a cached frame and still
+     * be served its verdict. Anything above 0 scans the cache on an exact miss, so keep the cache small.
+     */
+    public CachingImageService(ImageServiceInterface delegate, int maxEntries, long ttlMillis, int maxDistance) {
+        if(maxDistance < 0 || maxDistance >= Long.SIZE) {
+            throw new IllegalArgumentException("Hash distance must be between 0 and " + (Long.SIZE - 1));
+        }
+        this.delegate = delegate;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maxDistance = maxDistance;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedVerdict> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        return check(image, confidenceThreshhold, () -> delegate.imageContainsCat(image, confidenceThreshhold));
+    }
+
+    /**
+     * Looks the frame up by its decoded image; on a miss the delegate gets the JPEG bytes.
+     */
+    @Override
+    public boolean jpegContainsCat(byte[] jpeg, BufferedImage image, float confidenceThreshhold) {
+        return check(image, confidenceThreshhold, () -> delegate.jpegContainsCat(jpeg, image, confidenceThreshhold));
+    }
+
+    private boolean check(BufferedImage image, float confidenceThreshhold, BooleanSupplier analysis) {
+        if(image == null) {
+            return analysis.getAsBoolean();
+        }
+        long hash = PerceptualHash.of(image);
+        synchronized (cache) {
+            Boolean verdict = lookup(hash, confidenceThreshhold, System.nanoTime());
+            if(verdict != null) {
+                hits++;
+                return verdict;
+            }
+            misses++;
+        }
+
+        boolean containsCat = analysis.getAsBoolean();
+        synchronized (cache) {
+            record(hash, confidenceThreshhold, containsCat, System.nanoTime());
+        }
+        return containsCat;
+    }
+
+    /**
+     * Serves what it can from the cache and sends only the misses to the delegate, as one batch.
+     */
+    @Override
+    public List<Boolean> imagesContainCat(List<BufferedImage> images, float confidenceThreshhold) {
+        List<Boolean> verdicts = new ArrayList<>(images.size());
+        long[] hashes = new long[images.size()];
+        List<Integer> missIndexes = new ArrayList<>();
+        List<BufferedImage> missImages = new ArrayList<>();
+        for(int i = 0; i < images.size(); i++) {
+            BufferedImage image = images.get(i);
+            Boolean verdict = null;
+            if(image != null) {
+                hashes[i] = PerceptualHash.of(image);
+                synchronized (cache) {
+                    verdict = lookup(hashes[i], confidenceThreshhold, System.nanoTime());
+                    if(verdict != null) {
+                        hits++;
+                    } else {
+                        misses++;
+                    }
+                }
+            }
+            if(verdict == null) {
+                missIndexes.add(i);
+                missImages.add(image);
+            }
+            verdicts.add(verdict);
+        }
+        if(missImages.isEmpty()) {
+            return verdicts;
+        }
+
+        List<Boolean> computed = delegate.imagesContainCat(missImages, confidenceThreshhold);
+        long now = System.nanoTime();
+        synchronized (cache) {
+            for(int i = 0; i < missIndexes.size(); i++) {
+                int index = missIndexes.get(i);
+                verdicts.set(index, computed.get(i));
+                if(images.get(index) != null) {
+                    record(hashes[index], confidenceThreshhold, computed.get(i), now);
+                }
+            }
+        }
+        return verdicts;
+    }
+
+    /**
+     * Finds a verdict for the hash, or for the nearest cached hash within the allowed distance that
+     * has one. Must be called while holding the cache lock.
+     * @return The cached verdict, or null on a miss
+     */
+    private Boolean lookup(long hash, float confidenceThreshhold, long now) {
+        CachedVerdict cached = cache.get(hash);
+        Boolean verdict = cached == null ? null : cached.verdictAt(confidenceThreshhold, now);
+        if(verdict != null || maxDistance == 0) {
+            return verdict;
+        }
+        Long nearest = null;
+        int nearestDistance = maxDistance + 1;
+        for(Map.Entry<Long, CachedVerdict> entry : cache.entrySet()) {
+            int distance = Long.bitCount(entry.getKey() ^ hash);
+            if(distance < nearestDistance && entry.getValue().verdictAt(confidenceThreshhold, now) != null) {
+                nearest = entry.getKey();
+                nearestDistance = distance;
+            }
+        }
+        //looked up again so the entry counts as recently used
+        return nearest == null ? null : cache.get(nearest).verdictAt(confidenceThreshhold, now);
+    }
+
+    /**
+     * Stores a verdict. Must be called while holding the cache lock.
+     */
+    private void record(long hash, float confidenceThreshhold, boolean containsCat, long now) {
+        CachedVerdict cached = cache.get(hash);
+        if(cached == null || cached.isExpired(now)) {
+            cached = new CachedVerdict(now + ttlNanos);
+            cache.put(hash, cached);
+        }
+        cached.record(confidenceThreshhold, containsCat);
+    }
+
+    public long getHitCount() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    public long getMissCount() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    /**
+     * What is known about one frame: the highest threshold at which a cat was found and the
+     * lowest threshold at which none was.
+     */
+    private static class CachedVerdict {
+        private final long expiresAt;
+        private float highestCatThreshhold = Float.NEGATIVE_INFINITY;
+        private float lowestNoCatThreshhold = Float.POSITIVE_INFINITY;
+
+        private CachedVerdict(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+
+        private Boolean verdictAt(float confidenceThreshhold, long now) {
+            if(isExpired(now)) {
+                return null;
+            }
+            if(confidenceThreshhold <= highestCatThreshhold) {
+                return Boolean.TRUE;
+            }
+            if(confidenceThreshhold >= lowestNoCatThreshhold) {
+                return Boolean.FALSE;
+            }
+            return null;
+        }
+
+        private void record(float confidenceThreshhold, boolean containsCat) {
+            if(containsCat) {
+                highestCatThreshhold = Math.max(highestCatThreshhold, confidenceThreshhold);
+            } else {
+                lowestNoCatThreshhold = Math.min(lowestNoCatThreshhold, confidenceThreshhold);
+            }
+        }
+    }
+}
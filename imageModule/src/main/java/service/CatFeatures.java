@@ -0,0 +1,149 @@
+package service;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Turns an image into the feature vector used by {@link LocalCatModel}: a coarse RGB color
+ * histogram, a histogram of edge orientations weighted by edge strength (a single-cell HOG) and
+ * the overall edge density. The frame is first resampled to a fixed size, so cost does not depend
+ * on camera resolution. Both passes are split into row bands that run on a ForkJoinPool.
+ */
+final class CatFeatures {
+
+    private static final int LEVELS_PER_CHANNEL = 4;
+    static final int COLOR_BINS = LEVELS_PER_CHANNEL * LEVELS_PER_CHANNEL * LEVELS_PER_CHANNEL;
+    static final int ORIENTATION_BINS = 9;
+    static final int LENGTH = COLOR_BINS + ORIENTATION_BINS + 1;
+
+    private static final int SAMPLE_WIDTH = 256;
+    private static final int SAMPLE_HEIGHT = 192;
+    private static final int ROWS_PER_TASK = 24;
+
+    private CatFeatures() {
+    }
+
+    static double[] extract(BufferedImage image, ForkJoinPool pool) {
+        int[] rgb = new int[SAMPLE_WIDTH * SAMPLE_HEIGHT];
+        pool.invoke(new SampleTask(RasterReader.of(image), image.getWidth(), image.getHeight(), rgb, 0, SAMPLE_HEIGHT));
+        double[] sums = pool.invoke(new HistogramTask(rgb, 0, SAMPLE_HEIGHT));
+
+        double[] features = new double[LENGTH];
+        double pixels = SAMPLE_WIDTH * SAMPLE_HEIGHT;
+        for(int i = 0; i < COLOR_BINS; i++) {
+            features[i] = sums[i] / pixels;
+        }
+        double totalMagnitude = sums[LENGTH - 1];
+        for(int i = COLOR_BINS; i < COLOR_BINS + ORIENTATION_BINS; i++) {
+            features[i] = totalMagnitude > 0 ? sums[i] / totalMagnitude : 0;
+        }
+        features[LENGTH - 1] = totalMagnitude / ((SAMPLE_WIDTH - 2) * (SAMPLE_HEIGHT - 2)) / 255.0;
+        return features;
+    }
+
+    /**
+     * Nearest-neighbour resampling of a band of rows into the fixed-size sample grid.
+     */
+    @SuppressWarnings("serial") //only ever run in a pool, never serialized
+    private static class SampleTask extends RecursiveAction {
+        private final RasterReader reader;
+        private final int width;
+        private final int height;
+        private final int[] rgb;
+        private final int fromRow;
+        private final int toRow;
+
+        private SampleTask(RasterReader reader, int width, int height, int[] rgb, int fromRow, int toRow) {
+            this.reader = reader;
+            this.width = width;
+            this.height = height;
+            this.rgb = rgb;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected void compute() {
+            if(toRow - fromRow > ROWS_PER_TASK) {
+                int middle = (fromRow + toRow) >>> 1;
+                invokeAll(new SampleTask(reader, width, height, rgb, fromRow, middle),
+                        new SampleTask(reader, width, height, rgb, middle, toRow));
+                return;
+            }
+            for(int row = fromRow; row < toRow; row++) {
+                int y = (int) ((row * 2L + 1) * height / (2L * SAMPLE_HEIGHT));
+                for(int column = 0; column < SAMPLE_WIDTH; column++) {
+                    int x = (int) ((column * 2L + 1) * width / (2L * SAMPLE_WIDTH));
+                    rgb[row * SAMPLE_WIDTH + column] = reader.rgb(x, y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Accumulates color counts, orientation magnitudes and total edge magnitude for a band of rows.
+     * The result is laid out like the feature vector, with the magnitude total in the last slot.
+     */
+    @SuppressWarnings("serial") //only ever run in a pool, never serialized
+    private static class HistogramTask extends RecursiveTask<double[]> {
+        private final int[] rgb;
+        private final int fromRow;
+        private final int toRow;
+
+        private HistogramTask(int[] rgb, int fromRow, int toRow) {
+            this.rgb = rgb;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected double[] compute() {
+            if(toRow - fromRow > ROWS_PER_TASK) {
+                int middle = (fromRow + toRow) >>> 1;
+                HistogramTask top = new HistogramTask(rgb, fromRow, middle);
+                top.fork();
+                double[] sums = new HistogramTask(rgb, middle, toRow).compute();
+                double[] topSums = top.join();
+                for(int i = 0; i < sums.length; i++) {
+                    sums[i] += topSums[i];
+                }
+                return sums;
+            }
+
+            double[] sums = new double[LENGTH];
+            int shift = 8 - Integer.numberOfTrailingZeros(LEVELS_PER_CHANNEL);
+            for(int row = fromRow; row < toRow; row++) {
+                for(int column = 0; column < SAMPLE_WIDTH; column++) {
+                    int pixel = rgb[row * SAMPLE_WIDTH + column];
+                    int bin = ((((pixel >> 16) & 0xFF) >> shift) * LEVELS_PER_CHANNEL + (((pixel >> 8) & 0xFF) >> shift)) * LEVELS_PER_CHANNEL
+                            + ((pixel & 0xFF) >> shift);
+                    sums[bin]++;
+
+                    if(row == 0 || row == SAMPLE_HEIGHT - 1 || column == 0 || column == SAMPLE_WIDTH - 1) {
+                        continue;
+                    }
+                    int gx = luminance(row, column + 1) - luminance(row, column - 1);
+                    int gy = luminance(row + 1, column) - luminance(row - 1, column);
+                    if(gx == 0 && gy == 0) {
+                        continue;
+                    }
+                    double magnitude = Math.sqrt(gx * gx + gy * gy);
+                    double angle = Math.atan2(gy, gx);
+                    if(angle < 0) {
+                        angle += Math.PI; //orientation only, not direction
+                    }
+                    int orientation = Math.min(ORIENTATION_BINS - 1, (int) (angle / Math.PI * ORIENTATION_BINS));
+                    sums[COLOR_BINS + orientation] += magnitude;
+                    sums[LENGTH - 1] += magnitude;
+                }
+            }
+            return sums;
+        }
+
+        private int luminance(int row, int column) {
+            return RasterReader.luminance(rgb[row * SAMPLE_WIDTH + column]);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops calls to a backend that keeps failing or has become slow, so callers fail over at once
+ * instead of waiting on it. After enough consecutive failures the breaker opens and rejects calls.
+ * Once the open period is over a single trial call is let through: if it succeeds the breaker
+ * closes, otherwise it opens again. Calls slower than the slow call limit count as failures, so a
+ * latency spike sheds load just like an outage.
+ *
+ * Every permit carries the generation of the state it was handed out in, and outcomes reported for
+ * an earlier generation are ignored. A slow call from before the breaker opened that only now
+ * succeeds can't close it while its trial call is still out.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Returned by tryAcquire when the call may not go ahead.
+     */
+    public static final long REJECTED = -1;
+
+    private final int failureThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+
+    private State state = State.CLOSED; //all fields below guarded by this
+    private int consecutiveFailures;
+    private long openUntil;
+    private boolean trialInFlight;
+    private long generation; //advances on every change of state
+
+    /**
+     * @param failureThreshold Consecutive failures that open the breaker
+     * @param slowCallMillis Calls taking longer than this count as failures
+     * @param openMillis How long the breaker rejects calls before letting a trial call through
+     */
+    public CircuitBreaker(int failureThreshold, long slowCallMillis, long openMillis) {
+        if(failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    /**
+     * Asks to make a call. Every permitted call must be followed by onSuccess or onFailure with the
+     * permit it was given, or by release if the call wasn't made after all.
+     * @return The permit for the call, or REJECTED if it may not go ahead
+     */
+    public synchronized long tryAcquire() {
+        switch(state) {
+            case CLOSED:
+                return generation;
+            case OPEN:
+                if(System.nanoTime() - openUntil < 0) {
+                    return REJECTED;
+                }
+                moveTo(State.HALF_OPEN);
+                trialInFlight = true;
+                return generation;
+            default:
+                if(trialInFlight) {
+                    return REJECTED; //one trial at a time
+                }
+                trialInFlight = true;
+                return generation;
+        }
+    }
+
+    public synchronized void onSuccess(long permit, long latencyNanos) {
+        if(latencyNanos > slowCallNanos) {
+            onFailure(permit);
+            return;
+        }
+        if(permit != generation) {
+            return; //handed out before the last change of state
+        }
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        if(state != State.CLOSED) {
+            moveTo(State.CLOSED);
+        }
+    }
+
+    public synchronized void onFailure(long permit) {
+        if(permit != generation) {
+            return; //handed out before the last change of state
+        }
+        consecutiveFailures++;
+        trialInFlight = false;
+        if(state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            moveTo(State.OPEN);
+            openUntil = System.nanoTime() + openNanos;
+        }
+    }
+
+    /**
+     * Gives back a permit whose call was never made, e.g. because there was no thread to make it on.
+     * Counts neither as a success nor as a failure.
+     */
+    public synchronized void release(long permit) {
+        if(permit == generation) {
+            trialInFlight = false;
+        }
+    }
+
+    private void moveTo(State next) {
+        state = next;
+        generation++;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
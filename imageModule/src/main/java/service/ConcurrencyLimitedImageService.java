@@ -0,0 +1,173 @@
+package service;
+
+import java.awt.image.BufferedImage;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decorator for remote image services that caps the number of requests in flight, e.g. to stay
+ * within a service quota, and runs asynchronous requests one per thread.
+ *
+ * Where the runtime has virtual threads (Java 21 and later) every request gets its own virtual
+ * thread, so hundreds of requests waiting on the network don't tie up hundreds of OS threads.
+ * On older runtimes requests run on a pool of platform threads the size of the limit.
+ * A request that can't get a slot within the configured wait is rejected rather than queued
+ * without bound.
+ */
+public class ConcurrencyLimitedImageService implements ImageServiceInterface {
+
+    private final ImageServiceInterface delegate;
+    private final int maxInFlight;
+    private final Semaphore permits;
+    private final long maxWaitNanos;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    /**
+     * @param delegate Service that does the detection, called from many threads at once
+     * @param maxInFlight Most requests the delegate may be working on at the same time
+     * @param maxWaitMillis How long a request may wait for a free slot before it is rejected
+     */
+    public ConcurrencyLimitedImageService(ImageServiceInterface delegate, int maxInFlight, long maxWaitMillis) {
+        if(maxInFlight < 1) {
+            throw new IllegalArgumentException("At least one request must be allowed in flight");
+        }
+        this.delegate = delegate;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight, true);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : newPlatformThreadPool(maxInFlight);
+    }
+
+    /**
+     * Looked up reflectively, since the code is built for runtimes that may not have virtual threads.
+     * @return A virtual thread per task executor, or null if the runtime has none
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException exception) {
+            return null; //older runtime, or virtual threads are still a preview feature
+        }
+    }
+
+    private static ExecutorService newPlatformThreadPool(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "image-request-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs the request on the calling thread once a slot is free.
+     * @throws RejectedExecutionException If no slot became free in time
+     */
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        return imageContainsCat(image, confidenceThreshhold, System.nanoTime() + maxWaitNanos);
+    }
+
+    /**
+     * Same as imageContainsCat, passing the JPEG bytes on to the delegate.
+     * @throws RejectedExecutionException If no slot became free in time
+     */
+    @Override
+    public boolean jpegContainsCat(byte[] jpeg, BufferedImage image, float confidenceThreshhold) {
+        acquire(System.nanoTime() + maxWaitNanos);
+        try {
+            return delegate.jpegContainsCat(jpeg, image, confidenceThreshhold);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean imageContainsCat(BufferedImage image, float confidenceThreshhold, long deadline) {
+        acquire(deadline);
+        try {
+            return delegate.imageContainsCat(image, confidenceThreshhold);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Runs the request on its own thread and returns immediately.
+     * @return A future completed with the verdict, or exceptionally with a RejectedExecutionException
+     * if no slot became free in time
+     */
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshhold) {
+        //the wait starts now, so time spent queued for a platform thread counts towards it
+        long deadline = System.nanoTime() + maxWaitNanos;
+        return CompletableFuture.supplyAsync(() -> {
+            if(System.nanoTime() - deadline > 0) {
+                throw new RejectedExecutionException("Image request waited too long for a thread");
+            }
+            return imageContainsCat(image, confidenceThreshhold, deadline);
+        }, executor);
+    }
+
+    /**
+     * Sends every frame as its own request, as many at once as the limit allows.
+     */
+    @Override
+    public List<Boolean> imagesContainCat(List<BufferedImage> images, float confidenceThreshhold) {
+        List<CompletableFuture<Boolean>> requests = new ArrayList<>(images.size());
+        images.forEach(image -> requests.add(imageContainsCatAsync(image, confidenceThreshhold)));
+        List<Boolean> verdicts = new ArrayList<>(images.size());
+        try {
+            requests.forEach(request -> verdicts.add(request.join()));
+        } catch (CompletionException exception) {
+            if(exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw exception;
+        }
+        return verdicts;
+    }
+
+    private void acquire(long deadline) {
+        try {
+            if(!permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                throw new RejectedExecutionException("All " + maxInFlight + " image requests busy");
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted waiting for an image request slot", exception);
+        }
+    }
+
+    /**
+     * @return True if asynchronous requests run on virtual threads
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return Number of requests the delegate is working on right now
+     */
+    public int getInFlightCount() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    /**
+     * Stops accepting asynchronous requests. Requests already running finish normally.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
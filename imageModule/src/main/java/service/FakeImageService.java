@@ -1,6 +1,8 @@
 package service;
 
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 /**
@@ -15,4 +17,11 @@ public class FakeImageService implements ImageServiceInterface{
 
         return r.nextBoolean();
     }
+
+    @Override
+    public List<Boolean> imagesContainCat(List<BufferedImage> images, float confidenceThreshhold) {
+        List<Boolean> verdicts = new ArrayList<>(images.size());
+        images.forEach(image -> verdicts.add(r.nextBoolean()));
+        return verdicts;
+    }
 }
@@ -0,0 +1,251 @@
+package service;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Image service that keeps answering when a backend degrades. Providers are tried in order, most
+ * preferred first, typically a remote recognizer followed by a local detector such as
+ * LocalImageService.
+ *
+ * Every call to a provider has a timeout, and every provider has a {@link CircuitBreaker}: a
+ * provider that keeps failing or answering slowly is skipped until its breaker lets a trial call
+ * through again. If a provider hasn't answered within the hedge delay, the next provider is asked
+ * as well and whichever answers first wins, which cuts off the tail of slow responses. If no
+ * provider can answer, the call fails with an IllegalStateException.
+ *
+ * Calls that time out are interrupted. Every provider has threads of its own, so a provider that
+ * hangs can't take threads from the others: at most 8 calls to it run at once and up to 64 more
+ * wait their turn, the wait counting towards their timeout. While that many are taken, the
+ * provider is skipped like a provider whose breaker is open.
+ */
+public class FallbackImageService implements ImageServiceInterface {
+
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final long OPEN_MILLIS = 30_000;
+    private static final int CALLS_PER_PROVIDER = 8;
+    private static final int WAITING_CALLS_PER_PROVIDER = 64;
+
+    private final List<ImageServiceInterface> providers;
+    private final List<CircuitBreaker> breakers;
+    private final long timeoutMillis;
+    private final long hedgeAfterNanos;
+    private final List<ExecutorService> executors;
+
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong fellBack = new AtomicLong();
+
+    /**
+     * Opens a provider's breaker after 5 consecutive failures or calls slower than the timeout, for 30 seconds.
+     * @param providers Providers in order of preference
+     * @param timeoutMillis Longest a single provider may take to answer
+     * @param hedgeAfterMillis How long to wait for a provider before also asking the next one, 0 or less to never hedge
+     */
+    public FallbackImageService(List<ImageServiceInterface> providers, long timeoutMillis, long hedgeAfterMillis) {
+        this(providers, timeoutMillis, hedgeAfterMillis, FAILURE_THRESHOLD, timeoutMillis, OPEN_MILLIS);
+    }
+
+    /**
+     * @param failureThreshold Consecutive failures that open a provider's breaker
+     * @param slowCallMillis Answers slower than this count as failures of the provider
+     * @param openMillis How long an open breaker skips its provider
+     */
+    public FallbackImageService(List<ImageServiceInterface> providers, long timeoutMillis, long hedgeAfterMillis,
+                                int failureThreshold, long slowCallMillis, long openMillis) {
+        if(providers.isEmpty()) {
+            throw new IllegalArgumentException("At least one provider is needed");
+        }
+        this.providers = new ArrayList<>(providers);
+        this.breakers = new ArrayList<>(providers.size());
+        providers.forEach(provider -> breakers.add(new CircuitBreaker(failureThreshold, slowCallMillis, openMillis)));
+        this.timeoutMillis = timeoutMillis;
+        this.hedgeAfterNanos = hedgeAfterMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(hedgeAfterMillis) : Long.MAX_VALUE;
+        this.executors = new ArrayList<>(providers.size());
+        for(int i = 0; i < providers.size(); i++) {
+            executors.add(newProviderExecutor(i));
+        }
+    }
+
+    private static ExecutorService newProviderExecutor(int provider) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(CALLS_PER_PROVIDER, CALLS_PER_PROVIDER, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(WAITING_CALLS_PER_PROVIDER), r -> {
+            Thread thread = new Thread(r, "image-fallback-" + provider + "-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * @throws IllegalStateException If every provider failed, timed out or is shed by its breaker
+     */
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        return check(null, image, confidenceThreshhold);
+    }
+
+    /**
+     * Same as imageContainsCat, passing the JPEG bytes on to every provider asked.
+     * @throws IllegalStateException If every provider failed, timed out or is shed by its breaker
+     */
+    @Override
+    public boolean jpegContainsCat(byte[] jpeg, BufferedImage image, float confidenceThreshhold) {
+        return check(jpeg, image, confidenceThreshhold);
+    }
+
+    private boolean check(byte[] jpeg, BufferedImage image, float confidenceThreshhold) {
+        BlockingQueue<Attempt> finished = new LinkedBlockingQueue<>();
+        List<Attempt> running = new ArrayList<>();
+        RuntimeException lastFailure = null;
+        int next = start(0, jpeg, image, confidenceThreshhold, finished, running);
+        try {
+            while(!running.isEmpty()) {
+                boolean canHedge = next < providers.size();
+                Attempt attempt = canHedge ? finished.poll(hedgeAfterNanos, TimeUnit.NANOSECONDS) : finished.take();
+                if(attempt == null) {
+                    int before = running.size();
+                    next = start(next, jpeg, image, confidenceThreshhold, finished, running);
+                    if(running.size() > before) {
+                        hedged.incrementAndGet();
+                    }
+                    continue;
+                }
+                running.remove(attempt);
+                if(attempt.failure == null) {
+                    if(attempt.provider > 0) {
+                        fellBack.incrementAndGet();
+                    }
+                    //losing attempts are left to finish, so their breakers still learn how they did
+                    return attempt.verdict;
+                }
+                lastFailure = attempt.failure;
+                if(running.isEmpty()) {
+                    next = start(next, jpeg, image, confidenceThreshhold, finished, running);
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for an image service", exception);
+        }
+        throw new IllegalStateException("No image service could check the frame", lastFailure);
+    }
+
+    /**
+     * Starts the first provider from the given position whose breaker lets the call through and
+     * that can take another call.
+     * @return Position after the provider that was started, or the number of providers if none was
+     */
+    private int start(int from, byte[] jpeg, BufferedImage image, float confidenceThreshhold, BlockingQueue<Attempt> finished, List<Attempt> running) {
+        for(int i = from; i < providers.size(); i++) {
+            CircuitBreaker breaker = breakers.get(i);
+            long permit = breaker.tryAcquire();
+            if(permit == CircuitBreaker.REJECTED) {
+                continue; //shed, try the next one
+            }
+            long startedAt = System.nanoTime();
+            CompletableFuture<Boolean> call = call(i, jpeg, image, confidenceThreshhold);
+            if(call == null) {
+                breaker.release(permit);
+                continue; //too many calls to it already, shed like an open breaker
+            }
+            Attempt attempt = new Attempt(i, call);
+            attempt.future.whenComplete((verdict, throwable) -> {
+                if(throwable == null) {
+                    breaker.onSuccess(permit, System.nanoTime() - startedAt);
+                    attempt.verdict = verdict;
+                } else {
+                    breaker.onFailure(permit);
+                    Throwable cause = throwable.getCause() != null ? throwable.getCause() : throwable;
+                    attempt.failure = cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+                }
+                finished.add(attempt);
+            });
+            running.add(attempt);
+            return i + 1;
+        }
+        return providers.size();
+    }
+
+    /**
+     * Calls the provider on its own threads. The call is interrupted if it doesn't answer in time.
+     * @return The provider's answer, or null if it has no thread or place in line to spare
+     */
+    private CompletableFuture<Boolean> call(int position, byte[] jpeg, BufferedImage image, float confidenceThreshhold) {
+        ImageServiceInterface provider = providers.get(position);
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executors.get(position).submit(() -> {
+                try {
+                    result.complete(jpeg == null ? provider.imageContainsCat(image, confidenceThreshhold)
+                            : provider.jpegContainsCat(jpeg, image, confidenceThreshhold));
+                } catch (RuntimeException | Error exception) {
+                    result.completeExceptionally(exception);
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            return null;
+        }
+        result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((verdict, throwable) -> {
+            if(throwable != null) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return State of the breaker guarding the provider at the given position
+     */
+    public CircuitBreaker.State getBreakerState(int provider) {
+        return breakers.get(provider).getState();
+    }
+
+    /**
+     * @return Number of calls where a slow provider led to the next one being asked as well
+     */
+    public long getHedgedCount() {
+        return hedged.get();
+    }
+
+    /**
+     * @return Number of calls answered by a provider other than the first
+     */
+    public long getFallbackCount() {
+        return fellBack.get();
+    }
+
+    /**
+     * Stops the threads that call providers. Calls still running finish in the background, unless they time out.
+     */
+    public void shutdown() {
+        executors.forEach(ExecutorService::shutdown);
+    }
+
+    private static class Attempt {
+        private final int provider;
+        private final CompletableFuture<Boolean> future;
+        //written before the attempt is queued as finished, read after it is taken off the queue
+        private boolean verdict;
+        private RuntimeException failure;
+
+        private Attempt(int provider, CompletableFuture<Boolean> future) {
+            this.provider = provider;
+            this.future = future;
+        }
+    }
+}
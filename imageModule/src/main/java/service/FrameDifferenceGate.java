@@ -0,0 +1,87 @@
+package service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Decides whether a camera frame differs enough from the last analyzed frame to be worth sending
+ * to an image service. Frames are reduced to a coarse luminance grid and compared by mean absolute
+ * difference per cell, which ignores sensor noise and compression artifacts but catches anything
+ * moving through the scene.
+ *
+ * The reference frame only advances when a frame passes the gate, so slow changes such as
+ * daylight fading still add up and eventually trigger a new analysis.
+ */
+public class FrameDifferenceGate {
+
+    private static final int DEFAULT_GRID_WIDTH = 32;
+    private static final int DEFAULT_GRID_HEIGHT = 24;
+    private static final double DEFAULT_THRESHOLD = 4.0;
+
+    private final int gridWidth;
+    private final int gridHeight;
+    private final double threshold;
+
+    //two grids that swap roles, so comparing frames never allocates
+    private int[] reference;
+    private int[] current;
+    private boolean hasReference;
+    private int referenceWidth;
+    private int referenceHeight;
+
+    public FrameDifferenceGate() {
+        this(DEFAULT_GRID_WIDTH, DEFAULT_GRID_HEIGHT, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param gridWidth Number of columns the frame is reduced to
+     * @param gridHeight Number of rows the frame is reduced to
+     * @param threshold Mean luminance difference per cell (0-255) above which a frame counts as changed
+     */
+    public FrameDifferenceGate(int gridWidth, int gridHeight, double threshold) {
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.threshold = threshold;
+        this.reference = new int[gridWidth * gridHeight];
+        this.current = new int[gridWidth * gridHeight];
+    }
+
+    /**
+     * Returns true if the frame should be analyzed: it is the first frame, its size changed, or the
+     * scene changed beyond the threshold. A frame that passes becomes the new reference.
+     * Null frames always pass, since there is nothing to compare.
+     */
+    public synchronized boolean hasChanged(BufferedImage frame) {
+        if(frame == null) {
+            return true;
+        }
+        LuminanceGrid.sample(frame, gridWidth, gridHeight, current);
+        if(hasReference && frame.getWidth() == referenceWidth && frame.getHeight() == referenceHeight
+                && meanDifference() <= threshold) {
+            return false;
+        }
+
+        int[] swap = reference;
+        reference = current;
+        current = swap;
+        hasReference = true;
+        referenceWidth = frame.getWidth();
+        referenceHeight = frame.getHeight();
+        return true;
+    }
+
+    /**
+     * Forgets the reference frame, so the next frame always passes. Use this when the analysis of
+     * the last frame that passed did not produce a verdict.
+     */
+    public synchronized void reset() {
+        hasReference = false;
+    }
+
+    private double meanDifference() {
+        long total = 0;
+        for(int i = 0; i < current.length; i++) {
+            total += Math.abs(current[i] - reference[i]);
+        }
+        return (double) total / current.length / LuminanceGrid.samplesPerCell();
+    }
+}
@@ -0,0 +1,216 @@
+package service;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Prepares camera frames for a recognizer: crops them to a region of interest, if one is set, and
+ * shrinks them to fit the size the recognizer works at. Smaller frames encode faster, travel
+ * in fewer bytes and come back sooner, and most recognizers downsample large frames anyway.
+ *
+ * Resampling is area averaging: each output pixel is the mean of the source pixels it covers,
+ * partially covered pixels weighted by the covered fraction. Pixels are read straight from the
+ * raster and the output rows are computed in bands on a ForkJoinPool. Frames that already fit are
+ * returned as they are. Frames with transparency keep it: their colours are averaged weighted by
+ * opacity, so fully transparent pixels don't darken the edges of what is visible.
+ */
+public class ImagePreprocessor {
+
+    private static final int ROWS_PER_TASK = 16;
+
+    private final int maxWidth;
+    private final int maxHeight;
+    private final Rectangle regionOfInterest;
+    private final ForkJoinPool pool;
+
+    public ImagePreprocessor(int maxWidth, int maxHeight) {
+        this(maxWidth, maxHeight, null, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param maxWidth Widest frame to hand on; wider frames are scaled down, keeping their aspect ratio
+     * @param maxHeight Highest frame to hand on
+     * @param regionOfInterest Part of the frame to keep, in frame pixels, or null to keep the whole frame
+     * @param pool Pool that computes the output rows
+     */
+    public ImagePreprocessor(int maxWidth, int maxHeight, Rectangle regionOfInterest, ForkJoinPool pool) {
+        if(maxWidth < 1 || maxHeight < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive");
+        }
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.regionOfInterest = regionOfInterest == null ? null : new Rectangle(regionOfInterest);
+        this.pool = pool;
+    }
+
+    /**
+     * @return The frame cropped and scaled down to fit, or the frame itself if it needs neither.
+     * A region of interest that lies outside the frame leaves the whole frame.
+     */
+    public BufferedImage process(BufferedImage frame) {
+        if(frame == null) {
+            return null;
+        }
+        Rectangle bounds = new Rectangle(0, 0, frame.getWidth(), frame.getHeight());
+        Rectangle crop = regionOfInterest == null ? bounds : regionOfInterest.intersection(bounds);
+        if(crop.isEmpty()) {
+            crop = bounds;
+        }
+        double scale = Math.min(1.0, Math.min((double) maxWidth / crop.width, (double) maxHeight / crop.height));
+        if(scale == 1.0 && crop.equals(bounds)) {
+            return frame;
+        }
+        int width = Math.max(1, (int) Math.round(crop.width * scale));
+        int height = Math.max(1, (int) Math.round(crop.height * scale));
+        return resample(frame, crop, width, height, pool);
+    }
+
+    /**
+     * Scales the whole image to exactly the given size, stretching it if the aspect ratio differs.
+     * A faster replacement for getScaledInstance with SCALE_SMOOTH.
+     */
+    public static BufferedImage scale(BufferedImage image, int width, int height) {
+        return resample(image, new Rectangle(0, 0, image.getWidth(), image.getHeight()), width, height, ForkJoinPool.commonPool());
+    }
+
+    private static BufferedImage resample(BufferedImage source, Rectangle crop, int width, int height, ForkJoinPool pool) {
+        boolean alpha = source.getColorModel().hasAlpha();
+        BufferedImage target = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+        Spans columns = new Spans(crop.x, crop.width, width);
+        Spans rows = new Spans(crop.y, crop.height, height);
+        pool.invoke(new ResampleTask(RasterReader.of(source), alpha, columns, rows, pixels, width, 0, height));
+        return target;
+    }
+
+    /**
+     * For every output pixel along one axis, the source pixels it covers and how much of each.
+     */
+    private static class Spans {
+        private final int[] start;
+        private final int[] length;
+        private final int[] weightOffset;
+        private final float[] weights;
+
+        private Spans(int sourceOffset, int sourceLength, int targetLength) {
+            start = new int[targetLength];
+            length = new int[targetLength];
+            weightOffset = new int[targetLength];
+            double step = (double) sourceLength / targetLength;
+            int total = 0;
+            for(int i = 0; i < targetLength; i++) {
+                int first = (int) Math.floor(i * step);
+                int last = Math.min(sourceLength, (int) Math.ceil((i + 1) * step));
+                start[i] = sourceOffset + first;
+                length[i] = Math.max(1, last - first);
+                weightOffset[i] = total;
+                total += length[i];
+            }
+            weights = new float[total];
+            for(int i = 0; i < targetLength; i++) {
+                double from = i * step;
+                double to = (i + 1) * step;
+                int first = start[i] - sourceOffset;
+                for(int j = 0; j < length[i]; j++) {
+                    double covered = Math.min(to, first + j + 1) - Math.max(from, first + j);
+                    weights[weightOffset[i] + j] = (float) (covered / step);
+                }
+            }
+        }
+    }
+
+    /**
+     * Area averaging of a band of output rows.
+     */
+    @SuppressWarnings("serial") //only ever run in a pool, never serialized
+    private static class ResampleTask extends RecursiveAction {
+        private final RasterReader reader;
+        private final boolean alpha;
+        private final Spans columns;
+        private final Spans rows;
+        private final int[] pixels;
+        private final int width;
+        private final int fromRow;
+        private final int toRow;
+
+        private ResampleTask(RasterReader reader, boolean alpha, Spans columns, Spans rows, int[] pixels, int width, int fromRow, int toRow) {
+            this.reader = reader;
+            this.alpha = alpha;
+            this.columns = columns;
+            this.rows = rows;
+            this.pixels = pixels;
+            this.width = width;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected void compute() {
+            if(toRow - fromRow > ROWS_PER_TASK) {
+                int middle = (fromRow + toRow) >>> 1;
+                invokeAll(new ResampleTask(reader, alpha, columns, rows, pixels, width, fromRow, middle),
+                        new ResampleTask(reader, alpha, columns, rows, pixels, width, middle, toRow));
+                return;
+            }
+            if(alpha) {
+                computeWithAlpha();
+                return;
+            }
+            for(int row = fromRow; row < toRow; row++) {
+                for(int column = 0; column < width; column++) {
+                    float red = 0;
+                    float green = 0;
+                    float blue = 0;
+                    for(int j = 0; j < rows.length[row]; j++) {
+                        float rowWeight = rows.weights[rows.weightOffset[row] + j];
+                        int y = rows.start[row] + j;
+                        for(int i = 0; i < columns.length[column]; i++) {
+                            float weight = rowWeight * columns.weights[columns.weightOffset[column] + i];
+                            int rgb = reader.rgb(columns.start[column] + i, y);
+                            red += ((rgb >> 16) & 0xFF) * weight;
+                            green += ((rgb >> 8) & 0xFF) * weight;
+                            blue += (rgb & 0xFF) * weight;
+                        }
+                    }
+                    pixels[row * width + column] = (clamp(red) << 16) | (clamp(green) << 8) | clamp(blue);
+                }
+            }
+        }
+
+        private void computeWithAlpha() {
+            for(int row = fromRow; row < toRow; row++) {
+                for(int column = 0; column < width; column++) {
+                    float opacity = 0;
+                    float red = 0;
+                    float green = 0;
+                    float blue = 0;
+                    for(int j = 0; j < rows.length[row]; j++) {
+                        float rowWeight = rows.weights[rows.weightOffset[row] + j];
+                        int y = rows.start[row] + j;
+                        for(int i = 0; i < columns.length[column]; i++) {
+                            int argb = reader.argb(columns.start[column] + i, y);
+                            float weight = rowWeight * columns.weights[columns.weightOffset[column] + i] * (argb >>> 24);
+                            opacity += weight;
+                            red += ((argb >> 16) & 0xFF) * weight;
+                            green += ((argb >> 8) & 0xFF) * weight;
+                            blue += (argb & 0xFF) * weight;
+                        }
+                    }
+                    if(opacity > 0) {
+                        red /= opacity;
+                        green /= opacity;
+                        blue /= opacity;
+                    }
+                    pixels[row * width + column] = (clamp(opacity) << 24) | (clamp(red) << 16) | (clamp(green) << 8) | clamp(blue);
+                }
+            }
+        }
+
+        private static int clamp(float value) {
+            return Math.min(255, Math.max(0, Math.round(value)));
+        }
+    }
+}
@@ -1,7 +1,36 @@
 package service;
 
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
 
 public interface ImageServiceInterface {
      boolean imageContainsCat(BufferedImage image, float number);
+
+     /**
+      * Checks several frames, e.g. from different cameras or a burst from one camera, in one call.
+      * Implementations that can spread the work or share per-call overhead should override this;
+      * the default simply checks the frames one after another.
+      * @param images Frames to scan
+      * @param confidenceThreshhold Minimum confidence to consider for cat, as in imageContainsCat
+      * @return One verdict per frame, in the same order as the frames
+      */
+     default List<Boolean> imagesContainCat(List<BufferedImage> images, float confidenceThreshhold) {
+          List<Boolean> verdicts = new ArrayList<>(images.size());
+          for(BufferedImage image : images) {
+               verdicts.add(imageContainsCat(image, confidenceThreshhold));
+          }
+          return verdicts;
+     }
+
+     /**
+      * Same as imageContainsCat, for a frame that arrived JPEG encoded, e.g. from a camera. Services
+      * that upload frames can send these bytes as they are rather than encode the frame again; the
+      * default checks the decoded frame.
+      * @param jpeg The frame as encoded by its source. Must not be modified until this call returns.
+      * @param image The same frame, decoded
+      */
+     default boolean jpegContainsCat(byte[] jpeg, BufferedImage image, float confidenceThreshhold) {
+          return imageContainsCat(image, confidenceThreshhold);
+     }
 }
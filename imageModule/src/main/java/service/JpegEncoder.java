@@ -0,0 +1,119 @@
+package service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStreamImpl;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Encodes frames to JPEG into a buffer that is reused between calls. An encoder keeps its
+ * ImageWriter and an output stream that writes straight into its own growable array, so once the
+ * array has grown to the usual frame size, the encoded bytes are neither cached nor copied on the
+ * way. The writer still allocates its own working memory per frame. Encoders are not thread safe;
+ * hand one to one caller at a time.
+ */
+final class JpegEncoder {
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final ImageWriter writer;
+    private final ArrayImageOutputStream out = new ArrayImageOutputStream();
+
+    JpegEncoder() {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpg");
+        if(!writers.hasNext()) {
+            throw new IllegalStateException("No JPEG encoder available");
+        }
+        writer = writers.next();
+    }
+
+    /**
+     * Encodes the image. The returned buffer is a view of this encoder's internal storage and is
+     * only valid until the next call to encode.
+     */
+    ByteBuffer encode(BufferedImage image) throws IOException {
+        out.rewind();
+        try {
+            writer.setOutput(out);
+            writer.write(image);
+            out.flush();
+        } finally {
+            writer.reset();
+        }
+        return out.view();
+    }
+
+    /**
+     * Image output stream over a byte array that is kept between frames. Unlike
+     * MemoryCacheImageOutputStream it has no cache of its own to copy out of, and unlike
+     * ImageIO.write's default stream it never spools through a temp file.
+     */
+    private static class ArrayImageOutputStream extends ImageOutputStreamImpl {
+        private byte[] bytes = new byte[INITIAL_CAPACITY];
+        private int length;
+
+        private void rewind() {
+            length = 0;
+            streamPos = 0;
+            flushedPos = 0;
+            bitOffset = 0;
+        }
+
+        private ByteBuffer view() {
+            return ByteBuffer.wrap(bytes, 0, length).asReadOnlyBuffer();
+        }
+
+        private void ensureCapacity(long capacity) {
+            if(capacity > Integer.MAX_VALUE - 8) {
+                throw new OutOfMemoryError("Encoded frame too large");
+            }
+            if(capacity > bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int) Math.max(capacity, Math.min(Integer.MAX_VALUE - 8, bytes.length * 2L)));
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            flushBits();
+            ensureCapacity(streamPos + 1);
+            bytes[(int) streamPos++] = (byte) b;
+            length = Math.max(length, (int) streamPos);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            flushBits();
+            ensureCapacity(streamPos + len);
+            System.arraycopy(b, off, bytes, (int) streamPos, len);
+            streamPos += len;
+            length = Math.max(length, (int) streamPos);
+        }
+
+        @Override
+        public int read() {
+            bitOffset = 0;
+            return streamPos < length ? bytes[(int) streamPos++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            bitOffset = 0;
+            int available = (int) Math.min(len, length - streamPos);
+            if(available <= 0) {
+                return len == 0 ? 0 : -1;
+            }
+            System.arraycopy(bytes, (int) streamPos, b, off, available);
+            streamPos += available;
+            return available;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Linear classifier (logistic regression) over {@link CatFeatures}. Features are standardized
+ * with the mean and spread seen during training before the weights are applied.
+ */
+public class LocalCatModel {
+
+    private static final int EPOCHS = 2000;
+    private static final double LEARNING_RATE = 0.1;
+    private static final double L2_PENALTY = 0.001;
+    private static final String DEFAULT_MODEL = "default-cat-model.properties";
+
+    private final double[] weights;
+    private final double bias;
+    private final double[] mean;
+    private final double[] scale;
+
+    /**
+     * Recreates a trained model from its parameters, e.g. ones saved from {@link #train}.
+     */
+    public LocalCatModel(double[] weights, double bias, double[] mean, double[] scale) {
+        if(weights.length != CatFeatures.LENGTH || mean.length != CatFeatures.LENGTH || scale.length != CatFeatures.LENGTH) {
+            throw new IllegalArgumentException("Expected " + CatFeatures.LENGTH + " parameters per vector");
+        }
+        this.weights = weights.clone();
+        this.bias = bias;
+        this.mean = mean.clone();
+        this.scale = scale.clone();
+    }
+
+    /**
+     * The model fitted to the sample images that ship with the project, sample-cat.jpg against
+     * sample-not-cat.jpg and sample-not-a-cat-fail.jpg. Three examples are far too few to find cats
+     * in general; the model is there to run and benchmark the pipeline offline with verdicts that
+     * are the same on every run.
+     */
+    public static LocalCatModel defaultModel() {
+        try (InputStream in = LocalCatModel.class.getResourceAsStream(DEFAULT_MODEL)) {
+            if(in == null) {
+                throw new IllegalStateException("Default cat model " + DEFAULT_MODEL + " is missing");
+            }
+            Properties properties = new Properties();
+            properties.load(in);
+            return fromProperties(properties);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to read the default cat model", ioe);
+        }
+    }
+
+    /**
+     * Recreates a model saved with {@link #toProperties()}.
+     */
+    public static LocalCatModel fromProperties(Properties properties) {
+        try {
+            return new LocalCatModel(parse(properties, "weights"), Double.parseDouble(required(properties, "bias")),
+                    parse(properties, "mean"), parse(properties, "scale"));
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Malformed cat model parameter", exception);
+        }
+    }
+
+    private static String required(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if(value == null) {
+            throw new IllegalArgumentException("Cat model parameter " + key + " is missing");
+        }
+        return value;
+    }
+
+    private static double[] parse(Properties properties, String key) {
+        return Arrays.stream(required(properties, key).split(",")).map(String::trim).mapToDouble(Double::parseDouble).toArray();
+    }
+
+    /**
+     * @return The model's parameters, exactly, as read back by {@link #fromProperties(Properties)}
+     */
+    public Properties toProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("weights", join(weights));
+        properties.setProperty("bias", Double.toString(bias));
+        properties.setProperty("mean", join(mean));
+        properties.setProperty("scale", join(scale));
+        return properties;
+    }
+
+    private static String join(double[] values) {
+        return Arrays.stream(values).mapToObj(Double::toString).collect(Collectors.joining(","));
+    }
+
+    /**
+     * Fits a model to labelled example images. Training is deterministic: the same examples
+     * always produce the same model.
+     * @param cats Images that contain a cat
+     * @param others Images that don't
+     */
+    public static LocalCatModel train(List<BufferedImage> cats, List<BufferedImage> others) {
+        if(cats.isEmpty() || others.isEmpty()) {
+            throw new IllegalArgumentException("Need at least one example of each class");
+        }
+        List<double[]> examples = new ArrayList<>();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        cats.forEach(image -> examples.add(CatFeatures.extract(image, pool)));
+        others.forEach(image -> examples.add(CatFeatures.extract(image, pool)));
+
+        double[] mean = new double[CatFeatures.LENGTH];
+        double[] scale = new double[CatFeatures.LENGTH];
+        for(double[] example : examples) {
+            for(int i = 0; i < mean.length; i++) {
+                mean[i] += example[i] / examples.size();
+            }
+        }
+        for(double[] example : examples) {
+            for(int i = 0; i < scale.length; i++) {
+                scale[i] += (example[i] - mean[i]) * (example[i] - mean[i]) / examples.size();
+            }
+        }
+        for(int i = 0; i < scale.length; i++) {
+            scale[i] = scale[i] > 1e-12 ? Math.sqrt(scale[i]) : 1;
+        }
+        List<double[]> standardized = new ArrayList<>(examples.size());
+        examples.forEach(example -> standardized.add(standardize(example, mean, scale)));
+
+        //plain full-batch gradient descent; the example sets are small
+        double[] weights = new double[CatFeatures.LENGTH];
+        double bias = 0;
+        for(int epoch = 0; epoch < EPOCHS; epoch++) {
+            double[] gradient = new double[weights.length];
+            double biasGradient = 0;
+            for(int e = 0; e < standardized.size(); e++) {
+                double label = e < cats.size() ? 1 : 0;
+                double error = sigmoid(dot(weights, standardized.get(e)) + bias) - label;
+                for(int i = 0; i < weights.length; i++) {
+                    gradient[i] += error * standardized.get(e)[i];
+                }
+                biasGradient += error;
+            }
+            for(int i = 0; i < weights.length; i++) {
+                weights[i] -= LEARNING_RATE * (gradient[i] / standardized.size() + L2_PENALTY * weights[i]);
+            }
+            bias -= LEARNING_RATE * biasGradient / standardized.size();
+        }
+        return new LocalCatModel(weights, bias, mean, scale);
+    }
+
+    /**
+     * @return Probability between 0 and 1 that the features describe a cat
+     */
+    double probability(double[] features) {
+        return sigmoid(dot(weights, standardize(features, mean, scale)) + bias);
+    }
+
+    private static double[] standardize(double[] features, double[] mean, double[] scale) {
+        double[] standardized = new double[features.length];
+        for(int i = 0; i < features.length; i++) {
+            standardized[i] = (features[i] - mean[i]) / scale[i];
+        }
+        return standardized;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0;
+        for(int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static double sigmoid(double x) {
+        return 1 / (1 + Math.exp(-x));
+    }
+
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    public double getBias() {
+        return bias;
+    }
+
+    public double[] getMean() {
+        return mean.clone();
+    }
+
+    public double[] getScale() {
+        return scale.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "LocalCatModel{bias=" + bias + ", weights=" + Arrays.toString(weights) + "}";
+    }
+}
@@ -0,0 +1,51 @@
+package service;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Image service that detects cats on the local CPU with a {@link LocalCatModel}, without any
+ * network calls. Results are deterministic for a given model, which also makes this service
+ * useful for benchmarking the rest of the pipeline. Feature extraction for a frame is split
+ * across the pool's threads, and batches are spread across the pool one frame per task.
+ */
+public class LocalImageService implements ImageServiceInterface {
+
+    private final LocalCatModel model;
+    private final ForkJoinPool pool;
+
+    public LocalImageService(LocalCatModel model) {
+        this(model, ForkJoinPool.commonPool());
+    }
+
+    public LocalImageService(LocalCatModel model, ForkJoinPool pool) {
+        this.model = model;
+        this.pool = pool;
+    }
+
+    /**
+     * @return The model's confidence, from 0 to 100, that the image contains a cat
+     */
+    public float catConfidence(BufferedImage image) {
+        return (float) (model.probability(CatFeatures.extract(image, pool)) * 100);
+    }
+
+    /**
+     * Returns true if the model's confidence that the image contains a cat reaches the threshold.
+     * There is nothing to scan in a null image, so it never contains a cat.
+     */
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        return image != null && catConfidence(image) >= confidenceThreshhold;
+    }
+
+    @Override
+    public List<Boolean> imagesContainCat(List<BufferedImage> images, float confidenceThreshhold) {
+        //a parallel stream started from inside the pool runs its tasks in that pool
+        return pool.submit(() -> images.parallelStream()
+                .map(image -> imageContainsCat(image, confidenceThreshhold))
+                .collect(Collectors.toList())).join();
+    }
+}
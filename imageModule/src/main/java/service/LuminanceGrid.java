@@ -0,0 +1,48 @@
+package service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Reduces an image to a small grid of average luminance values by sampling a fixed number of
+ * pixels per cell. Pixels are read through a {@link RasterReader}, so sampling allocates nothing
+ * per pixel for the common image layouts.
+ */
+final class LuminanceGrid {
+
+    private static final int SAMPLES_PER_CELL = 4; //per axis
+
+    private LuminanceGrid() {
+    }
+
+    /**
+     * Fills {@code cells} (row-major, of length gridWidth * gridHeight) with the summed luminance of the
+     * samples in each cell. Sums rather than averages are kept, since callers only compare them.
+     */
+    static void sample(BufferedImage image, int gridWidth, int gridHeight, int[] cells) {
+        RasterReader reader = RasterReader.of(image);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int samplesX = gridWidth * SAMPLES_PER_CELL;
+        int samplesY = gridHeight * SAMPLES_PER_CELL;
+        for(int cellY = 0; cellY < gridHeight; cellY++) {
+            for(int cellX = 0; cellX < gridWidth; cellX++) {
+                int sum = 0;
+                for(int sy = 0; sy < SAMPLES_PER_CELL; sy++) {
+                    int y = (int) (((cellY * SAMPLES_PER_CELL + sy) * 2L + 1) * height / (2L * samplesY));
+                    for(int sx = 0; sx < SAMPLES_PER_CELL; sx++) {
+                        int x = (int) (((cellX * SAMPLES_PER_CELL + sx) * 2L + 1) * width / (2L * samplesX));
+                        sum += reader.luminance(x, y);
+                    }
+                }
+                cells[cellY * gridWidth + cellX] = sum;
+            }
+        }
+    }
+
+    /**
+     * Number of luminance samples summed into each cell.
+     */
+    static int samplesPerCell() {
+        return SAMPLES_PER_CELL * SAMPLES_PER_CELL;
+    }
+}
@@ -0,0 +1,79 @@
+package service;
+
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Decorator that records how long the underlying service takes to answer and how often it finds a
+ * cat or fails. Metrics are named "image.*" in the given registry.
+ */
+public class MeteredImageService implements ImageServiceInterface {
+
+    private final ImageServiceInterface delegate;
+    private final LatencyHistogram singleLatency;
+    private final LatencyHistogram batchLatency;
+    private final Counter frames;
+    private final Counter cats;
+    private final Counter failures;
+
+    public MeteredImageService(ImageServiceInterface delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        this.singleLatency = registry.histogram("image.imageContainsCat");
+        this.batchLatency = registry.histogram("image.imagesContainCat");
+        this.frames = registry.counter("image.frames");
+        this.cats = registry.counter("image.cats");
+        this.failures = registry.counter("image.failures");
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        return record(() -> delegate.imageContainsCat(image, confidenceThreshhold));
+    }
+
+    @Override
+    public boolean jpegContainsCat(byte[] jpeg, BufferedImage image, float confidenceThreshhold) {
+        return record(() -> delegate.jpegContainsCat(jpeg, image, confidenceThreshhold));
+    }
+
+    private boolean record(BooleanSupplier check) {
+        long start = System.nanoTime();
+        try {
+            boolean containsCat = check.getAsBoolean();
+            frames.increment();
+            if(containsCat) {
+                cats.increment();
+            }
+            return containsCat;
+        } catch (RuntimeException exception) {
+            failures.increment();
+            throw exception;
+        } finally {
+            singleLatency.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<Boolean> imagesContainCat(List<BufferedImage> images, float confidenceThreshhold) {
+        long start = System.nanoTime();
+        try {
+            List<Boolean> verdicts = delegate.imagesContainCat(images, confidenceThreshhold);
+            frames.add(images.size());
+            verdicts.forEach(containsCat -> {
+                if(containsCat) {
+                    cats.increment();
+                }
+            });
+            return verdicts;
+        } catch (RuntimeException exception) {
+            failures.increment();
+            throw exception;
+        } finally {
+            batchLatency.recordSince(start);
+        }
+    }
+}
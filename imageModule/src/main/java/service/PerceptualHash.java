@@ -0,0 +1,33 @@
+package service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Cheap perceptual hash of an image (a "difference hash"). The image is reduced to a 9x8 grid of
+ * average luminance values and each bit records whether a cell is brighter than its right-hand
+ * neighbour. Frames that differ only by noise or compression artifacts produce the same hash.
+ */
+public final class PerceptualHash {
+
+    private static final int GRID_WIDTH = 9;
+    private static final int GRID_HEIGHT = 8;
+
+    private PerceptualHash() {
+    }
+
+    public static long of(BufferedImage image) {
+        int[] luminance = new int[GRID_WIDTH * GRID_HEIGHT];
+        LuminanceGrid.sample(image, GRID_WIDTH, GRID_HEIGHT, luminance);
+
+        long hash = 0;
+        for(int cellY = 0; cellY < GRID_HEIGHT; cellY++) {
+            for(int cellX = 0; cellX < GRID_WIDTH - 1; cellX++) {
+                hash <<= 1;
+                if(luminance[cellY * GRID_WIDTH + cellX] > luminance[cellY * GRID_WIDTH + cellX + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,124 @@
+package service;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * Reads pixels of a BufferedImage as packed RGB, or ARGB where transparency matters. The common
+ * in-memory layouts (packed int RGB/ARGB and interleaved byte BGR/ABGR/gray, which is what ImageIO
+ * produces for JPEGs and PNGs) are read straight from the raster's data array, so reading allocates
+ * nothing per pixel. Other layouts fall back to getRGB.
+ */
+abstract class RasterReader {
+
+    /**
+     * @return The pixel as 0xRRGGBB
+     */
+    abstract int rgb(int x, int y);
+
+    /**
+     * @return The pixel as 0xAARRGGBB, not premultiplied; opaque for images without alpha
+     */
+    int argb(int x, int y) {
+        return 0xFF000000 | rgb(x, y);
+    }
+
+    int luminance(int x, int y) {
+        return luminance(rgb(x, y));
+    }
+
+    /**
+     * Integer approximation of Rec. 601 luma, 0-255.
+     */
+    static int luminance(int rgb) {
+        return (((rgb >> 16) & 0xFF) * 77 + ((rgb >> 8) & 0xFF) * 150 + (rgb & 0xFF) * 29) >> 8;
+    }
+
+    static RasterReader of(BufferedImage image) {
+        Raster raster = image.getRaster();
+        SampleModel model = raster.getSampleModel();
+        DataBuffer buffer = raster.getDataBuffer();
+        int tx = raster.getSampleModelTranslateX();
+        int ty = raster.getSampleModelTranslateY();
+        int type = image.getType();
+
+        if((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_ARGB_PRE)
+                && buffer instanceof DataBufferInt && model instanceof SinglePixelPackedSampleModel) {
+            int[] data = ((DataBufferInt) buffer).getData();
+            int offset = buffer.getOffset();
+            int stride = ((SinglePixelPackedSampleModel) model).getScanlineStride();
+            return new RasterReader() {
+                @Override
+                int rgb(int x, int y) {
+                    return data[offset + (y - ty) * stride + (x - tx)] & 0xFFFFFF;
+                }
+
+                @Override
+                int argb(int x, int y) {
+                    return type == BufferedImage.TYPE_INT_ARGB ? data[offset + (y - ty) * stride + (x - tx)]
+                            : type == BufferedImage.TYPE_INT_RGB ? 0xFF000000 | rgb(x, y)
+                            : image.getRGB(x, y); //premultiplied, let getRGB divide the alpha out
+                }
+            };
+        }
+        if((type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR || type == BufferedImage.TYPE_BYTE_GRAY)
+                && buffer instanceof DataBufferByte && model instanceof ComponentSampleModel) {
+            byte[] data = ((DataBufferByte) buffer).getData();
+            ComponentSampleModel components = (ComponentSampleModel) model;
+            int offset = buffer.getOffset();
+            int stride = components.getScanlineStride();
+            int pixelStride = components.getPixelStride();
+            int[] bands = components.getBandOffsets();
+            if(type == BufferedImage.TYPE_BYTE_GRAY) {
+                int gray = bands[0];
+                return new RasterReader() {
+                    @Override
+                    int rgb(int x, int y) {
+                        int value = data[offset + (y - ty) * stride + (x - tx) * pixelStride + gray] & 0xFF;
+                        return (value << 16) | (value << 8) | value;
+                    }
+
+                    @Override
+                    int luminance(int x, int y) {
+                        return data[offset + (y - ty) * stride + (x - tx) * pixelStride + gray] & 0xFF;
+                    }
+                };
+            }
+            //bands are ordered R, G, B (, A) regardless of their position in memory
+            int red = bands[0];
+            int green = bands[1];
+            int blue = bands[2];
+            int alpha = type == BufferedImage.TYPE_4BYTE_ABGR ? bands[3] : -1;
+            return new RasterReader() {
+                @Override
+                int rgb(int x, int y) {
+                    int pixel = offset + (y - ty) * stride + (x - tx) * pixelStride;
+                    return ((data[pixel + red] & 0xFF) << 16) | ((data[pixel + green] & 0xFF) << 8) | (data[pixel + blue] & 0xFF);
+                }
+
+                @Override
+                int argb(int x, int y) {
+                    int opacity = alpha < 0 ? 0xFF : data[offset + (y - ty) * stride + (x - tx) * pixelStride + alpha] & 0xFF;
+                    return (opacity << 24) | rgb(x, y);
+                }
+            };
+        }
+        return new RasterReader() {
+            @Override
+            int rgb(int x, int y) {
+                return image.getRGB(x, y) & 0xFFFFFF;
+            }
+
+            @Override
+            int argb(int x, int y) {
+                return image.getRGB(x, y);
+            }
+        };
+    }
+}
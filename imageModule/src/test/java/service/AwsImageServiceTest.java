@@ -0,0 +1,73 @@
+package service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkBytes;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+public class AwsImageServiceTest {
+
+    /**
+     * Keeps what would have been uploaded instead of calling Rekognition.
+     */
+    private static class RecordingAwsImageService extends AwsImageService {
+        private byte[] uploaded;
+
+        @Override
+        boolean detectCat(SdkBytes bytes, float confidenceThreshhold) {
+            uploaded = bytes.asByteArray();
+            return true;
+        }
+    }
+
+    private static byte[] jpeg(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void jpegContainsCat_frameNeedsNoPreprocessing_bytesSentUntouched() throws IOException {
+        RecordingAwsImageService service = new RecordingAwsImageService();
+        BufferedImage frame = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        byte[] jpeg = jpeg(frame);
+        jpeg[jpeg.length - 3] ^= 1; //marks the bytes as the camera's own rather than a fresh encoding
+
+        Assertions.assertTrue(service.jpegContainsCat(jpeg, frame, 50f));
+        Assertions.assertArrayEquals(jpeg, service.uploaded);
+    }
+
+    @Test
+    void jpegContainsCat_frameTooLarge_shrunkAndEncodedAgain() throws IOException {
+        RecordingAwsImageService service = new RecordingAwsImageService();
+        BufferedImage frame = new BufferedImage(1280, 960, BufferedImage.TYPE_INT_RGB);
+
+        Assertions.assertTrue(service.jpegContainsCat(jpeg(frame), frame, 50f));
+        BufferedImage uploaded = ImageIO.read(new ByteArrayInputStream(service.uploaded));
+        Assertions.assertEquals(640, uploaded.getWidth());
+        Assertions.assertEquals(480, uploaded.getHeight());
+    }
+
+    @Test
+    void imageContainsCat_decodedFrame_encodedAsJpeg() throws IOException {
+        RecordingAwsImageService service = new RecordingAwsImageService();
+        Assertions.assertTrue(service.imageContainsCat(new BufferedImage(32, 16, BufferedImage.TYPE_INT_RGB), 50f));
+        Assertions.assertEquals(32, ImageIO.read(new ByteArrayInputStream(service.uploaded)).getWidth());
+    }
+
+    @Test
+    void shutdown_serviceWithoutClient_batchThreadsStopped() {
+        RecordingAwsImageService service = new RecordingAwsImageService();
+        service.shutdown();
+
+        List<BufferedImage> frames = List.of(new BufferedImage(32, 16, BufferedImage.TYPE_INT_RGB), new BufferedImage(32, 16, BufferedImage.TYPE_INT_RGB));
+        Assertions.assertThrows(RejectedExecutionException.class, () -> service.imagesContainCat(frames, 50f));
+    }
+}
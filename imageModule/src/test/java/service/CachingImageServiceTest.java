@@ -0,0 +1,163 @@
+package service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class CachingImageServiceTest {
+
+    private static final int CELL = 10; //pixels per perceptual hash cell
+
+    /**
+     * Frame made of uniform 9x8 hash cells, each cell 100 gray unless overridden.
+     * @param overrides Pairs of cell index (row-major) and gray level
+     */
+    private static BufferedImage frame(int... overrides) {
+        int[] cells = new int[9 * 8];
+        Arrays.fill(cells, 100);
+        for(int i = 0; i < overrides.length; i += 2) {
+            cells[overrides[i]] = overrides[i + 1];
+        }
+        BufferedImage image = new BufferedImage(9 * CELL, 8 * CELL, BufferedImage.TYPE_INT_RGB);
+        for(int y = 0; y < image.getHeight(); y++) {
+            for(int x = 0; x < image.getWidth(); x++) {
+                int gray = cells[(y / CELL) * 9 + x / CELL];
+                image.setRGB(x, y, (gray << 16) | (gray << 8) | gray);
+            }
+        }
+        return image;
+    }
+
+    private static class CountingImageService implements ImageServiceInterface {
+        private final boolean verdict;
+        private int calls;
+
+        private CountingImageService(boolean verdict) {
+            this.verdict = verdict;
+        }
+
+        private byte[] lastJpeg;
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+            calls++;
+            return verdict;
+        }
+
+        @Override
+        public boolean jpegContainsCat(byte[] jpeg, BufferedImage image, float confidenceThreshhold) {
+            lastJpeg = jpeg;
+            return imageContainsCat(image, confidenceThreshhold);
+        }
+    }
+
+    @Test
+    void jpegContainsCat_missThenHit_bytesPassedOnOnlyOnMiss() {
+        CountingImageService delegate = new CountingImageService(true);
+        CachingImageService cache = new CachingImageService(delegate, 16, 60_000);
+        byte[] jpeg = {1, 2, 3};
+        Assertions.assertTrue(cache.jpegContainsCat(jpeg, frame(), 50f));
+        Assertions.assertSame(jpeg, delegate.lastJpeg);
+        Assertions.assertTrue(cache.jpegContainsCat(new byte[]{4}, frame(), 50f));
+        Assertions.assertEquals(1, delegate.calls);
+        Assertions.assertSame(jpeg, delegate.lastJpeg);
+    }
+
+    @Test
+    void imageContainsCat_sameFrameSameThreshold_servedFromCache() {
+        CountingImageService delegate = new CountingImageService(true);
+        CachingImageService cache = new CachingImageService(delegate, 16, 60_000);
+        Assertions.assertTrue(cache.imageContainsCat(frame(), 50f));
+        Assertions.assertTrue(cache.imageContainsCat(frame(), 50f));
+        Assertions.assertEquals(1, delegate.calls);
+        Assertions.assertEquals(1, cache.getHitCount());
+        Assertions.assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void imageContainsCat_catThenStricterThreshold_asksAgain() {
+        CountingImageService delegate = new CountingImageService(true);
+        CachingImageService cache = new CachingImageService(delegate, 16, 60_000);
+        cache.imageContainsCat(frame(), 50f);
+        cache.imageContainsCat(frame(), 80f);
+        Assertions.assertEquals(2, delegate.calls);
+        //a cat at 80% answers both thresholds from now on
+        cache.imageContainsCat(frame(), 50f);
+        cache.imageContainsCat(frame(), 80f);
+        Assertions.assertEquals(2, delegate.calls);
+    }
+
+    @Test
+    void imageContainsCat_noCatThenStricterThreshold_servedFromCache() {
+        CountingImageService delegate = new CountingImageService(false);
+        CachingImageService cache = new CachingImageService(delegate, 16, 60_000);
+        Assertions.assertFalse(cache.imageContainsCat(frame(), 50f));
+        Assertions.assertFalse(cache.imageContainsCat(frame(), 80f));
+        Assertions.assertEquals(1, delegate.calls);
+        //no cat at 50% says nothing about 30%
+        cache.imageContainsCat(frame(), 30f);
+        Assertions.assertEquals(2, delegate.calls);
+    }
+
+    @Test
+    void imageContainsCat_expired_asksAgain() {
+        CountingImageService delegate = new CountingImageService(true);
+        CachingImageService cache = new CachingImageService(delegate, 16, 0);
+        cache.imageContainsCat(frame(), 50f);
+        cache.imageContainsCat(frame(), 50f);
+        Assertions.assertEquals(2, delegate.calls);
+    }
+
+    @Test
+    void imageContainsCat_hashOneBitAway_hitOnlyWithinDistance() {
+        BufferedImage original = frame();
+        BufferedImage nearDuplicate = frame(0, 120); //first cell brighter than its neighbour flips one bit
+        Assertions.assertEquals(1, Long.bitCount(PerceptualHash.of(original) ^ PerceptualHash.of(nearDuplicate)));
+
+        CountingImageService exactDelegate = new CountingImageService(true);
+        CachingImageService exact = new CachingImageService(exactDelegate, 16, 60_000);
+        exact.imageContainsCat(original, 50f);
+        exact.imageContainsCat(nearDuplicate, 50f);
+        Assertions.assertEquals(2, exactDelegate.calls);
+
+        CountingImageService nearDelegate = new CountingImageService(true);
+        CachingImageService near = new CachingImageService(nearDelegate, 16, 60_000, 2);
+        near.imageContainsCat(original, 50f);
+        Assertions.assertTrue(near.imageContainsCat(nearDuplicate, 50f));
+        Assertions.assertEquals(1, nearDelegate.calls);
+        //three flipped bits are beyond the distance
+        near.imageContainsCat(frame(0, 120, 9, 120, 18, 120), 50f);
+        Assertions.assertEquals(2, nearDelegate.calls);
+    }
+
+    @Test
+    void imagesContainCat_mixedHitsAndMisses_verdictsInFrameOrder() {
+        ImageServiceInterface brightFirstCell = (image, threshold) -> (image.getRGB(0, 0) & 0xFF) > 100;
+        CachingImageService cache = new CachingImageService(brightFirstCell, 16, 60_000);
+        cache.imageContainsCat(frame(0, 120), 50f);
+        List<Boolean> verdicts = cache.imagesContainCat(List.of(frame(), frame(0, 120), frame(), frame(9, 150)), 50f);
+        Assertions.assertEquals(List.of(false, true, false, false), verdicts);
+        //repeats within one batch are looked up before the delegate answers, so only the cached frame hits
+        Assertions.assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void perceptualHash_noisyCopy_sameHash() {
+        BufferedImage clean = new BufferedImage(90, 80, BufferedImage.TYPE_INT_RGB);
+        BufferedImage noisy = new BufferedImage(90, 80, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(7);
+        for(int y = 0; y < 80; y++) {
+            for(int x = 0; x < 90; x++) {
+                int gray = 20 + 20 * (x / CELL) + y / CELL;
+                int noise = Math.min(255, gray + random.nextInt(5) - 2);
+                clean.setRGB(x, y, (gray << 16) | (gray << 8) | gray);
+                noisy.setRGB(x, y, (noise << 16) | (noise << 8) | noise);
+            }
+        }
+        Assertions.assertEquals(PerceptualHash.of(clean), PerceptualHash.of(noisy));
+    }
+}
@@ -0,0 +1,115 @@
+package service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static void failTimes(CircuitBreaker breaker, int times) {
+        for(int i = 0; i < times; i++) {
+            long permit = breaker.tryAcquire();
+            Assertions.assertNotEquals(CircuitBreaker.REJECTED, permit);
+            breaker.onFailure(permit);
+        }
+    }
+
+    @Test
+    void onFailure_thresholdReached_opensAndRejects() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 1_000, 60_000);
+        failTimes(breaker, 2);
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        failTimes(breaker, 1);
+
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assertions.assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+    }
+
+    @Test
+    void onSuccess_failuresNotConsecutive_staysClosed() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 1_000, 60_000);
+        failTimes(breaker, 1);
+        breaker.onSuccess(breaker.tryAcquire(), FAST);
+        failTimes(breaker, 1);
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void tryAcquire_openPeriodOver_oneTrialThenClosedOnSuccess() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1_000, 20);
+        failTimes(breaker, 1);
+        Thread.sleep(40);
+
+        long trial = breaker.tryAcquire();
+        Assertions.assertNotEquals(CircuitBreaker.REJECTED, trial);
+        Assertions.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        Assertions.assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+        breaker.onSuccess(trial, FAST);
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assertions.assertNotEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+    }
+
+    @Test
+    void onFailure_trialFails_opensAgain() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1_000, 20);
+        failTimes(breaker, 1);
+        Thread.sleep(40);
+
+        breaker.onFailure(breaker.tryAcquire());
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assertions.assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+    }
+
+    @Test
+    void onSuccess_slowCall_countsAsFailure() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 10, 60_000);
+        breaker.onSuccess(breaker.tryAcquire(), TimeUnit.MILLISECONDS.toNanos(50));
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void onSuccess_lateCallFromBeforeOpening_trialStillDecides() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1_000, 20);
+        long late = breaker.tryAcquire();
+        failTimes(breaker, 1);
+        Thread.sleep(40);
+        long trial = breaker.tryAcquire();
+
+        breaker.onSuccess(late, FAST);
+        Assertions.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        Assertions.assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+        breaker.onFailure(trial);
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void onFailure_lateCallFromBeforeClosing_staysClosed() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1_000, 20);
+        long late = breaker.tryAcquire();
+        failTimes(breaker, 1);
+        Thread.sleep(40);
+        breaker.onSuccess(breaker.tryAcquire(), FAST);
+
+        breaker.onFailure(late);
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void release_trialNeverMade_nextTrialAllowedAndStateUnchanged() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1_000, 20);
+        failTimes(breaker, 1);
+        Thread.sleep(40);
+
+        breaker.release(breaker.tryAcquire());
+        Assertions.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        long trial = breaker.tryAcquire();
+        Assertions.assertNotEquals(CircuitBreaker.REJECTED, trial);
+        breaker.onSuccess(trial, FAST);
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
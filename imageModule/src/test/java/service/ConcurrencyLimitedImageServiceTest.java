@@ -0,0 +1,138 @@
+package service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrencyLimitedImageServiceTest {
+
+    private static final BufferedImage FRAME = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+
+    /**
+     * Delegate that holds every request until released and tracks how many it works on at once.
+     */
+    private static class GatedImageService implements ImageServiceInterface {
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        private final AtomicInteger entered = new AtomicInteger();
+        private volatile Thread lastThread;
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+            lastThread = Thread.currentThread();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            entered.incrementAndGet();
+            try {
+                Assertions.assertTrue(release.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException exception) {
+                throw new IllegalStateException(exception);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return true;
+        }
+    }
+
+    private static void awaitEntered(GatedImageService delegate, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(delegate.entered.get() < count) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void imageContainsCatAsync_moreRequestsThanLimit_neverMoreInFlight() throws InterruptedException {
+        GatedImageService delegate = new GatedImageService();
+        ConcurrencyLimitedImageService service = new ConcurrencyLimitedImageService(delegate, 3, 5_000);
+        List<CompletableFuture<Boolean>> requests = new ArrayList<>();
+        for(int i = 0; i < 12; i++) {
+            requests.add(service.imageContainsCatAsync(FRAME, 50f));
+        }
+        awaitEntered(delegate, 3);
+        Thread.sleep(50); //give any request that slipped past the limit time to show up
+        Assertions.assertEquals(3, service.getInFlightCount());
+        Assertions.assertEquals(3, delegate.entered.get());
+
+        delegate.release.countDown();
+        requests.forEach(request -> Assertions.assertTrue(request.join()));
+        Assertions.assertEquals(3, delegate.maxInFlight.get());
+        Assertions.assertEquals(0, service.getInFlightCount());
+        service.shutdown();
+    }
+
+    @Test
+    void imageContainsCat_noSlotWithinWait_rejected() throws InterruptedException {
+        GatedImageService delegate = new GatedImageService();
+        ConcurrencyLimitedImageService service = new ConcurrencyLimitedImageService(delegate, 1, 50);
+        CompletableFuture<Boolean> first = service.imageContainsCatAsync(FRAME, 50f);
+        awaitEntered(delegate, 1);
+
+        Assertions.assertThrows(RejectedExecutionException.class, () -> service.imageContainsCat(FRAME, 50f));
+        //a platform thread pool only gets to the waiting request once the first one is done, so let
+        //the wait run out before releasing it
+        CompletableFuture<Boolean> second = service.imageContainsCatAsync(FRAME, 50f);
+        Thread.sleep(200);
+        delegate.release.countDown();
+
+        Assertions.assertTrue(first.join());
+        CompletionException failure = Assertions.assertThrows(CompletionException.class, second::join);
+        Assertions.assertTrue(failure.getCause() instanceof RejectedExecutionException);
+        Assertions.assertEquals(1, delegate.entered.get());
+        service.shutdown();
+    }
+
+    @Test
+    void imageContainsCatAsync_runtimeWithoutVirtualThreads_platformPoolOfLimitSize() throws ReflectiveOperationException {
+        GatedImageService delegate = new GatedImageService();
+        delegate.release.countDown();
+        ConcurrencyLimitedImageService service = new ConcurrencyLimitedImageService(delegate, 2, 5_000);
+        service.imageContainsCatAsync(FRAME, 50f).join();
+
+        boolean runtimeHasVirtualThreads;
+        try {
+            Thread.class.getMethod("isVirtual");
+            runtimeHasVirtualThreads = true;
+        } catch (NoSuchMethodException exception) {
+            runtimeHasVirtualThreads = false;
+        }
+        if(!runtimeHasVirtualThreads) {
+            Assertions.assertFalse(service.usesVirtualThreads());
+        }
+        if(service.usesVirtualThreads()) {
+            Assertions.assertEquals(Boolean.TRUE, Thread.class.getMethod("isVirtual").invoke(delegate.lastThread));
+        } else {
+            Assertions.assertTrue(delegate.lastThread.getName().startsWith("image-request-"));
+            Assertions.assertTrue(delegate.lastThread.isDaemon());
+        }
+        service.shutdown();
+    }
+
+    @Test
+    void imagesContainCat_oneRequestRejected_rejectionPropagates() throws InterruptedException {
+        GatedImageService delegate = new GatedImageService();
+        ConcurrencyLimitedImageService service = new ConcurrencyLimitedImageService(delegate, 1, 50);
+        CompletableFuture<Boolean> blocking = service.imageContainsCatAsync(FRAME, 50f);
+        awaitEntered(delegate, 1);
+
+        CompletableFuture<List<Boolean>> batch = CompletableFuture.supplyAsync(() -> service.imagesContainCat(List.of(FRAME, FRAME), 50f));
+        Thread.sleep(200);
+        delegate.release.countDown();
+        CompletionException failure = Assertions.assertThrows(CompletionException.class, batch::join);
+        Assertions.assertTrue(failure.getCause() instanceof RejectedExecutionException);
+
+        blocking.join();
+        Assertions.assertEquals(List.of(true, true), service.imagesContainCat(List.of(FRAME, FRAME), 50f));
+        service.shutdown();
+    }
+}
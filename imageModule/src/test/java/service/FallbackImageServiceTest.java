@@ -0,0 +1,203 @@
+package service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FallbackImageServiceTest {
+
+    private static final BufferedImage FRAME = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+
+    private FallbackImageService service;
+
+    @AfterEach
+    void shutdown() {
+        if(service != null) {
+            service.shutdown();
+        }
+    }
+
+    /**
+     * Provider that counts its calls and answers after the given delay, or fails if it has no answer.
+     */
+    private static class ScriptedImageService implements ImageServiceInterface {
+        private final Boolean verdict;
+        private final long delayMillis;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final CountDownLatch interrupted = new CountDownLatch(1);
+
+        private ScriptedImageService(Boolean verdict, long delayMillis) {
+            this.verdict = verdict;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+            calls.incrementAndGet();
+            if(delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException exception) {
+                    interrupted.countDown();
+                    throw new IllegalStateException(exception);
+                }
+            }
+            if(verdict == null) {
+                throw new IllegalStateException("provider down");
+            }
+            return verdict;
+        }
+    }
+
+    @Test
+    void imageContainsCat_firstProviderHealthy_onlyFirstAsked() {
+        ScriptedImageService first = new ScriptedImageService(true, 0);
+        ScriptedImageService second = new ScriptedImageService(false, 0);
+        service = new FallbackImageService(List.of(first, second), 1_000, 0);
+
+        Assertions.assertTrue(service.imageContainsCat(FRAME, 50f));
+        Assertions.assertEquals(0, second.calls.get());
+        Assertions.assertEquals(0, service.getFallbackCount());
+    }
+
+    @Test
+    void imageContainsCat_firstProviderFails_nextAnswersAndBreakerOpens() {
+        ScriptedImageService first = new ScriptedImageService(null, 0);
+        ScriptedImageService second = new ScriptedImageService(true, 0);
+        service = new FallbackImageService(List.of(first, second), 1_000, 0, 2, 1_000, 60_000);
+
+        for(int i = 0; i < 4; i++) {
+            Assertions.assertTrue(service.imageContainsCat(FRAME, 50f));
+        }
+        Assertions.assertEquals(2, first.calls.get());
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, service.getBreakerState(0));
+        Assertions.assertEquals(4, service.getFallbackCount());
+    }
+
+    @Test
+    void imageContainsCat_firstProviderSlow_nextAskedAfterHedgeDelay() {
+        ScriptedImageService first = new ScriptedImageService(false, 2_000);
+        ScriptedImageService second = new ScriptedImageService(true, 0);
+        service = new FallbackImageService(List.of(first, second), 5_000, 20);
+
+        long start = System.nanoTime();
+        Assertions.assertTrue(service.imageContainsCat(FRAME, 50f));
+        Assertions.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1_000));
+        Assertions.assertEquals(1, service.getHedgedCount());
+        Assertions.assertEquals(1, service.getFallbackCount());
+    }
+
+    @Test
+    void imageContainsCat_firstProviderTimesOut_callInterruptedAndNextAnswers() throws InterruptedException {
+        ScriptedImageService first = new ScriptedImageService(false, 5_000);
+        ScriptedImageService second = new ScriptedImageService(true, 0);
+        service = new FallbackImageService(List.of(first, second), 50, 0);
+
+        Assertions.assertTrue(service.imageContainsCat(FRAME, 50f));
+        Assertions.assertTrue(first.interrupted.await(1, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, service.getHedgedCount());
+    }
+
+    @Test
+    void imageContainsCat_everyProviderFails_throwsIllegalState() {
+        ScriptedImageService first = new ScriptedImageService(null, 0);
+        ScriptedImageService second = new ScriptedImageService(null, 0);
+        service = new FallbackImageService(List.of(first, second), 1_000, 0);
+
+        IllegalStateException failure = Assertions.assertThrows(IllegalStateException.class,
+                () -> service.imageContainsCat(FRAME, 50f));
+        Assertions.assertEquals("provider down", failure.getCause().getMessage());
+    }
+
+    @Test
+    void imageContainsCat_providerFullyBooked_skippedWithoutCountingFailure() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        ImageServiceInterface blocking = (image, confidenceThreshhold) -> {
+            running.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        };
+        ScriptedImageService fallback = new ScriptedImageService(true, 0);
+        service = new FallbackImageService(List.of(blocking, fallback), 5_000, 0, 1, 5_000, 60_000);
+
+        //8 calls running and 64 waiting take everything the first provider has
+        List<Thread> callers = new ArrayList<>();
+        for(int i = 0; i < 8 + 64; i++) {
+            Thread caller = new Thread(() -> service.imageContainsCat(FRAME, 50f));
+            caller.start();
+            callers.add(caller);
+        }
+        try {
+            awaitCount(running, 8);
+            Thread.sleep(200); //for the waiting calls to line up
+            Assertions.assertTrue(service.imageContainsCat(FRAME, 50f));
+            Assertions.assertEquals(1, fallback.calls.get());
+            Assertions.assertEquals(CircuitBreaker.State.CLOSED, service.getBreakerState(0));
+        } finally {
+            release.countDown();
+        }
+        for(Thread caller : callers) {
+            caller.join(5_000);
+        }
+        Assertions.assertFalse(service.imageContainsCat(FRAME, 50f)); //threads free again
+    }
+
+    @Test
+    void imageContainsCat_primaryHangsIgnoringInterrupts_fallbackKeepsAnswering() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        ImageServiceInterface hung = (image, confidenceThreshhold) -> {
+            while(release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException exception) {
+                    //like a blocking socket read, carries on regardless
+                }
+            }
+            return false;
+        };
+        ScriptedImageService fallback = new ScriptedImageService(true, 0);
+        service = new FallbackImageService(List.of(hung, fallback), 200, 0);
+
+        List<Thread> callers = new ArrayList<>();
+        AtomicInteger answered = new AtomicInteger();
+        try {
+            for(int i = 0; i < 20; i++) {
+                Thread caller = new Thread(() -> {
+                    if(service.imageContainsCat(FRAME, 50f)) {
+                        answered.incrementAndGet();
+                    }
+                });
+                caller.start();
+                callers.add(caller);
+            }
+            for(Thread caller : callers) {
+                caller.join(5_000);
+            }
+            Assertions.assertEquals(20, answered.get());
+            Assertions.assertEquals(CircuitBreaker.State.CLOSED, service.getBreakerState(1));
+            Assertions.assertTrue(service.imageContainsCat(FRAME, 50f));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void awaitCount(AtomicInteger count, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(count.get() < expected) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+
+public class ImagePreprocessorTest {
+
+    private static BufferedImage gray(int width, int height, int... values) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for(int i = 0; i < values.length; i++) {
+            image.setRGB(i % width, i / width, values[i] * 0x010101);
+        }
+        return image;
+    }
+
+    private static int grayAt(BufferedImage image, int x, int y) {
+        int rgb = image.getRGB(x, y);
+        Assertions.assertEquals(rgb & 0xFF, (rgb >> 8) & 0xFF);
+        Assertions.assertEquals(rgb & 0xFF, (rgb >> 16) & 0xFF);
+        return rgb & 0xFF;
+    }
+
+    @Test
+    void scale_halfSize_eachPixelAveragesTheBlockItCovers() {
+        BufferedImage scaled = ImagePreprocessor.scale(gray(4, 2,
+                0, 100, 200, 40,
+                20, 80, 0, 120), 2, 1);
+        Assertions.assertEquals(50, grayAt(scaled, 0, 0));
+        Assertions.assertEquals(90, grayAt(scaled, 1, 0));
+    }
+
+    @Test
+    void scale_fractionalStep_partiallyCoveredPixelsWeightedByCoverage() {
+        //each output pixel covers one and a half source pixels
+        BufferedImage scaled = ImagePreprocessor.scale(gray(3, 1, 0, 90, 180), 2, 1);
+        Assertions.assertEquals(30, grayAt(scaled, 0, 0));
+        Assertions.assertEquals(150, grayAt(scaled, 1, 0));
+    }
+
+    @Test
+    void scale_larger_pixelsRepeated() {
+        BufferedImage scaled = ImagePreprocessor.scale(gray(2, 1, 10, 200), 4, 2);
+        Assertions.assertEquals(4, scaled.getWidth());
+        Assertions.assertEquals(2, scaled.getHeight());
+        for(int y = 0; y < 2; y++) {
+            Assertions.assertEquals(10, grayAt(scaled, 0, y));
+            Assertions.assertEquals(10, grayAt(scaled, 1, y));
+            Assertions.assertEquals(200, grayAt(scaled, 2, y));
+            Assertions.assertEquals(200, grayAt(scaled, 3, y));
+        }
+    }
+
+    @Test
+    void process_frameFits_sameFrameReturned() {
+        BufferedImage frame = gray(8, 4);
+        Assertions.assertSame(frame, new ImagePreprocessor(8, 8).process(frame));
+    }
+
+    @Test
+    void process_frameTooLarge_scaledDownKeepingAspectRatio() {
+        BufferedImage processed = new ImagePreprocessor(10, 10).process(gray(100, 50));
+        Assertions.assertEquals(10, processed.getWidth());
+        Assertions.assertEquals(5, processed.getHeight());
+    }
+
+    @Test
+    void process_regionPartlyOutsideFrame_croppedToOverlap() {
+        BufferedImage frame = gray(4, 3,
+                1, 2, 3, 4,
+                5, 6, 7, 8,
+                9, 10, 11, 12);
+        ImagePreprocessor preprocessor = new ImagePreprocessor(100, 100, new Rectangle(2, 1, 10, 10), ForkJoinPool.commonPool());
+        BufferedImage processed = preprocessor.process(frame);
+        Assertions.assertEquals(2, processed.getWidth());
+        Assertions.assertEquals(2, processed.getHeight());
+        Assertions.assertEquals(7, grayAt(processed, 0, 0));
+        Assertions.assertEquals(8, grayAt(processed, 1, 0));
+        Assertions.assertEquals(11, grayAt(processed, 0, 1));
+        Assertions.assertEquals(12, grayAt(processed, 1, 1));
+    }
+
+    @Test
+    void process_regionOutsideFrame_wholeFrameKept() {
+        BufferedImage frame = gray(4, 3);
+        ImagePreprocessor preprocessor = new ImagePreprocessor(100, 100, new Rectangle(10, 10, 5, 5), ForkJoinPool.commonPool());
+        Assertions.assertSame(frame, preprocessor.process(frame));
+    }
+
+    @Test
+    void scale_transparentRegions_alphaKeptAndColourNotDarkened() {
+        for(int type : new int[]{BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_4BYTE_ABGR}) {
+            BufferedImage image = new BufferedImage(4, 1, type);
+            image.setRGB(0, 0, 0xFFFF0000); //opaque red
+            image.setRGB(1, 0, 0x00000000); //transparent
+            image.setRGB(2, 0, 0x00000000);
+            image.setRGB(3, 0, 0x00000000);
+            BufferedImage scaled = ImagePreprocessor.scale(image, 2, 1);
+
+            Assertions.assertTrue(scaled.getColorModel().hasAlpha());
+            int half = scaled.getRGB(0, 0);
+            Assertions.assertEquals(128, half >>> 24, 1);
+            Assertions.assertEquals(0xFF0000, half & 0xFFFFFF);
+            Assertions.assertEquals(0, scaled.getRGB(1, 0) >>> 24);
+        }
+    }
+
+    @Test
+    void scale_opaqueFrame_noAlpha() {
+        Assertions.assertFalse(ImagePreprocessor.scale(gray(4, 4), 2, 2).getColorModel().hasAlpha());
+    }
+}
@@ -0,0 +1,78 @@
+package service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class ImageServiceInterfaceTest {
+
+    //a frame "contains a cat" if it is wider than high
+    private static final ImageServiceInterface WIDE_IS_CAT = (image, threshhold) -> image.getWidth() > image.getHeight();
+
+    private static List<BufferedImage> frames(boolean... cats) {
+        List<BufferedImage> frames = new ArrayList<>();
+        for(boolean cat : cats) {
+            frames.add(cat ? new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB) : new BufferedImage(2, 4, BufferedImage.TYPE_INT_RGB));
+        }
+        return frames;
+    }
+
+    /**
+     * Stands in for Rekognition: answers after a random delay, so concurrent requests finish out of order.
+     */
+    private static class SlowAwsImageService extends AwsImageService {
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextInt(5));
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            if(image.getWidth() == image.getHeight()) {
+                throw new IllegalArgumentException("square frame");
+            }
+            return image.getWidth() > image.getHeight();
+        }
+    }
+
+    @Test
+    void imagesContainCat_defaultImplementation_verdictsInFrameOrder() {
+        Assertions.assertEquals(List.of(true, false, false, true),
+                WIDE_IS_CAT.imagesContainCat(frames(true, false, false, true), 50f));
+        Assertions.assertEquals(List.of(), WIDE_IS_CAT.imagesContainCat(List.of(), 50f));
+    }
+
+    @Test
+    void imagesContainCat_defaultImplementationFails_exceptionPropagates() {
+        ImageServiceInterface failing = (image, threshhold) -> {
+            throw new IllegalStateException("service down");
+        };
+        IllegalStateException failure = Assertions.assertThrows(IllegalStateException.class,
+                () -> failing.imagesContainCat(frames(true, false), 50f));
+        Assertions.assertEquals("service down", failure.getMessage());
+    }
+
+    @Test
+    void imagesContainCat_awsRequestsFinishOutOfOrder_verdictsInFrameOrder() {
+        boolean[] cats = new boolean[32];
+        List<Boolean> expected = new ArrayList<>();
+        for(int i = 0; i < cats.length; i++) {
+            cats[i] = i % 3 == 0;
+            expected.add(cats[i]);
+        }
+        Assertions.assertEquals(expected, new SlowAwsImageService().imagesContainCat(frames(cats), 50f));
+    }
+
+    @Test
+    void imagesContainCat_oneAwsRequestFails_originalExceptionPropagates() {
+        List<BufferedImage> images = frames(true, false, true);
+        images.add(1, new BufferedImage(3, 3, BufferedImage.TYPE_INT_RGB));
+        IllegalArgumentException failure = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new SlowAwsImageService().imagesContainCat(images, 50f));
+        Assertions.assertEquals("square frame", failure.getMessage());
+    }
+}
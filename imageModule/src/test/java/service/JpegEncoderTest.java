@@ -0,0 +1,68 @@
+package service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+public class JpegEncoderTest {
+
+    private static BufferedImage noise(int width, int height, long seed) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(seed);
+        for(int y = 0; y < height; y++) {
+            for(int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Test
+    void encode_sameAsImageIoWrite() throws IOException {
+        BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillOval(40, 40, 200, 120);
+        graphics.dispose();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", expected);
+
+        Assertions.assertArrayEquals(expected.toByteArray(), bytes(new JpegEncoder().encode(image)));
+    }
+
+    @Test
+    void encode_largeFrameThenSmallFrame_eachDecodesToItsOwnSize() throws IOException {
+        JpegEncoder encoder = new JpegEncoder();
+        //noise compresses badly, so this frame outgrows the initial buffer
+        byte[] large = bytes(encoder.encode(noise(640, 480, 1)));
+        Assertions.assertTrue(large.length > 64 * 1024);
+        byte[] small = bytes(encoder.encode(noise(32, 16, 2)));
+        Assertions.assertTrue(small.length < large.length);
+
+        BufferedImage decodedSmall = ImageIO.read(new ByteArrayInputStream(small));
+        Assertions.assertEquals(32, decodedSmall.getWidth());
+        Assertions.assertEquals(16, decodedSmall.getHeight());
+        BufferedImage decodedLarge = ImageIO.read(new ByteArrayInputStream(bytes(encoder.encode(noise(640, 480, 1)))));
+        Assertions.assertEquals(640, decodedLarge.getWidth());
+    }
+
+    @Test
+    void encode_returnedView_isReadOnly() throws IOException {
+        Assertions.assertTrue(new JpegEncoder().encode(noise(8, 8, 3)).isReadOnly());
+    }
+}
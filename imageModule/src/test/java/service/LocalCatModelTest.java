@@ -0,0 +1,134 @@
+package service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+public class LocalCatModelTest {
+
+    /**
+     * Stand-in for a cat photo: an orange tabby blob with dark stripes on a carpet-colored background.
+     */
+    private static BufferedImage tabby(Random random) {
+        BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(150 + random.nextInt(30), 120 + random.nextInt(30), 100));
+        graphics.fillRect(0, 0, 320, 240);
+        int x = 40 + random.nextInt(60);
+        int y = 30 + random.nextInt(50);
+        graphics.setColor(new Color(220 + random.nextInt(30), 120 + random.nextInt(30), 30 + random.nextInt(30)));
+        graphics.fillOval(x, y, 180, 140);
+        graphics.setColor(new Color(90, 50, 20));
+        graphics.setStroke(new BasicStroke(4 + random.nextInt(3)));
+        for(int stripe = 0; stripe < 8; stripe++) {
+            int sx = x + 20 + stripe * 18;
+            graphics.drawLine(sx, y + 10, sx + 25, y + 130);
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    /**
+     * Stand-in for an empty room: a smooth blue-gray gradient with a plain rectangle of furniture.
+     */
+    private static BufferedImage emptyRoom(Random random) {
+        BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        int shade = 120 + random.nextInt(60);
+        graphics.setPaint(new GradientPaint(0, 0, new Color(shade, shade, shade + 40), 320, 240, new Color(shade / 2, shade / 2, shade / 2 + 40)));
+        graphics.fillRect(0, 0, 320, 240);
+        graphics.setColor(new Color(70, 80, 90 + random.nextInt(40)));
+        graphics.fillRect(20 + random.nextInt(150), 120 + random.nextInt(40), 120, 80);
+        graphics.dispose();
+        return image;
+    }
+
+    private static LocalCatModel trainOn(long seed) {
+        Random random = new Random(seed);
+        List<BufferedImage> cats = new ArrayList<>();
+        List<BufferedImage> others = new ArrayList<>();
+        for(int i = 0; i < 6; i++) {
+            cats.add(tabby(random));
+            others.add(emptyRoom(random));
+        }
+        return LocalCatModel.train(cats, others);
+    }
+
+    @Test
+    void train_syntheticExamples_separatesUnseenFrames() {
+        LocalImageService imageService = new LocalImageService(trainOn(1));
+        Random random = new Random(2);
+        for(int i = 0; i < 5; i++) {
+            Assertions.assertTrue(imageService.catConfidence(tabby(random)) > 90, "tabby " + i);
+            Assertions.assertTrue(imageService.catConfidence(emptyRoom(random)) < 10, "empty room " + i);
+        }
+    }
+
+    @Test
+    void train_sameExamples_sameModel() {
+        LocalCatModel first = trainOn(3);
+        LocalCatModel second = trainOn(3);
+        Assertions.assertArrayEquals(first.getWeights(), second.getWeights());
+        Assertions.assertEquals(first.getBias(), second.getBias());
+    }
+
+    @Test
+    void constructor_savedParameters_predictsLikeTrainedModel() {
+        LocalCatModel trained = trainOn(4);
+        LocalCatModel restored = new LocalCatModel(trained.getWeights(), trained.getBias(), trained.getMean(), trained.getScale());
+        BufferedImage frame = tabby(new Random(5));
+        Assertions.assertEquals(new LocalImageService(trained).catConfidence(frame), new LocalImageService(restored).catConfidence(frame));
+    }
+
+    @Test
+    void toProperties_savedAndRead_sameParametersExactly() {
+        LocalCatModel trained = trainOn(9);
+        LocalCatModel restored = LocalCatModel.fromProperties(trained.toProperties());
+        Assertions.assertArrayEquals(trained.getWeights(), restored.getWeights());
+        Assertions.assertEquals(trained.getBias(), restored.getBias());
+        Assertions.assertArrayEquals(trained.getMean(), restored.getMean());
+        Assertions.assertArrayEquals(trained.getScale(), restored.getScale());
+    }
+
+    @Test
+    void fromProperties_parameterMissing_rejected() {
+        Properties properties = trainOn(10).toProperties();
+        properties.remove("bias");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LocalCatModel.fromProperties(properties));
+    }
+
+    @Test
+    void defaultModel_loadedTwice_sameVerdicts() {
+        LocalCatModel model = LocalCatModel.defaultModel();
+        Assertions.assertEquals(CatFeatures.LENGTH, model.getWeights().length);
+        BufferedImage frame = tabby(new Random(11));
+        Assertions.assertEquals(new LocalImageService(model).catConfidence(frame),
+                new LocalImageService(LocalCatModel.defaultModel()).catConfidence(frame));
+    }
+
+    @Test
+    void train_missingClass_rejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LocalCatModel.train(List.of(tabby(new Random(6))), List.of()));
+    }
+
+    @Test
+    void imagesContainCat_batch_matchesSingleVerdictsInOrder() {
+        LocalImageService imageService = new LocalImageService(trainOn(7));
+        Random random = new Random(8);
+        List<BufferedImage> frames = List.of(tabby(random), emptyRoom(random), emptyRoom(random), tabby(random));
+        List<Boolean> expected = new ArrayList<>();
+        frames.forEach(frame -> expected.add(imageService.imageContainsCat(frame, 50f)));
+        Assertions.assertEquals(List.of(true, false, false, true), expected);
+        Assertions.assertEquals(expected, imageService.imagesContainCat(frames, 50f));
+        Assertions.assertFalse(imageService.imageContainsCat(null, 0f));
+    }
+}
@@ -0,0 +1,140 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency distribution in log-linear buckets, the layout HdrHistogram uses: every power of two is
+ * split into 32 equally wide buckets, so any recorded value is reported within about 3% of what
+ * was measured, from single nanoseconds up to several minutes, in a fixed 9 KB of counts.
+ *
+ * Recording is a bucket index computation and a few atomic adds, with no locking or allocation,
+ * so it is safe on hot paths and from any number of threads.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_VALUE_BITS = 41; //a little over 36 minutes in nanoseconds
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    static final int BUCKETS = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(bucketOf(value));
+        totalNanos.add(value);
+        if(value > maxNanos.get()) {
+            maxNanos.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Records the time elapsed since a {@link System#nanoTime()} reading taken before the operation.
+     */
+    public void recordSince(long startNanos) {
+        recordNanos(System.nanoTime() - startNanos);
+    }
+
+    public void record(long duration, TimeUnit unit) {
+        recordNanos(unit.toNanos(duration));
+    }
+
+    /**
+     * Copies the current counts. Values recorded while the copy is taken may or may not be included.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, totalNanos.sum(), maxNanos.get());
+    }
+
+    static int bucketOf(long value) {
+        if(value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    static long lowestValueOf(int bucket) {
+        if(bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        return (long) (bucket - (shift << SUB_BUCKET_BITS)) << shift;
+    }
+
+    static long highestValueOf(int bucket) {
+        return bucket < SUB_BUCKETS ? bucket : lowestValueOf(bucket + 1) - 1;
+    }
+
+    /**
+     * Point in time copy of a histogram.
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMeanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * @param percentile Between 0 and 100
+         * @return The highest value in the bucket holding the given percentile, never more than the
+         * largest value recorded, or 0 if nothing was recorded
+         */
+        public long getPercentileNanos(double percentile) {
+            if(percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+            }
+            if(count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for(int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if(seen >= rank) {
+                    return Math.min(highestValueOf(i), maxNanos);
+                }
+            }
+            return maxNanos; //counts raced ahead of the total while the snapshot was taken
+        }
+
+        public long getP50Nanos() {
+            return getPercentileNanos(50);
+        }
+
+        public long getP99Nanos() {
+            return getPercentileNanos(99);
+        }
+    }
+}
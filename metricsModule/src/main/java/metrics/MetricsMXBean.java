@@ -0,0 +1,26 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * What a {@link MetricsRegistry} shows over JMX. Latencies are in microseconds, which is what
+ * monitoring consoles plot comfortably.
+ */
+public interface MetricsMXBean {
+
+    Map<String, Long> getCounters();
+
+    /**
+     * @return Number of recorded values per histogram
+     */
+    Map<String, Long> getCounts();
+
+    Map<String, Long> getP50Micros();
+
+    Map<String, Long> getP99Micros();
+
+    /**
+     * @return The snapshot as text, one metric per line
+     */
+    String[] getSummary();
+}
@@ -0,0 +1,109 @@
+package metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named counters and latency histograms. Metrics are created on first use, so instrumented code
+ * just asks for them by name; asking again returns the same instance.
+ *
+ * Names are dotted, component first, e.g. "image.imageContainsCat" or "repository.updateSensor".
+ */
+public class MetricsRegistry {
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final long createdAtNanos = System.nanoTime();
+
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        return counter != null ? counter : counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        return histogram != null ? histogram : histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /**
+     * Copies every metric. Throughput in the snapshot is measured from when this registry was created.
+     */
+    public MetricsSnapshot snapshot() {
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.getCount()));
+        Map<String, LatencyHistogram.Snapshot> histogramValues = new TreeMap<>();
+        histograms.forEach((name, histogram) -> histogramValues.put(name, histogram.snapshot()));
+        return new MetricsSnapshot(System.currentTimeMillis(), System.nanoTime() - createdAtNanos, counterValues, histogramValues);
+    }
+
+    /**
+     * Publishes this registry on the platform MBean server, so it can be read with jconsole or any
+     * other JMX client.
+     * @param name Object name, e.g. "catpoint:type=Metrics"
+     */
+    public void registerMBean(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName(name);
+        try {
+            server.registerMBean(new MetricsMBeanImpl(this), objectName);
+        } catch (InstanceAlreadyExistsException exception) {
+            //a previous registry under the same name, e.g. from an earlier window in this JVM
+            server.unregisterMBean(objectName);
+            server.registerMBean(new MetricsMBeanImpl(this), objectName);
+        }
+    }
+
+    public static void unregisterMBean(String name) throws JMException {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(name));
+        } catch (InstanceNotFoundException exception) {
+            //nothing registered, nothing to do
+        }
+    }
+
+    private static class MetricsMBeanImpl implements MetricsMXBean {
+        private final MetricsRegistry registry;
+
+        private MetricsMBeanImpl(MetricsRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public Map<String, Long> getCounters() {
+            return registry.snapshot().getCounters();
+        }
+
+        @Override
+        public Map<String, Long> getCounts() {
+            Map<String, Long> counts = new TreeMap<>();
+            registry.snapshot().getHistograms().forEach((name, histogram) -> counts.put(name, histogram.getCount()));
+            return counts;
+        }
+
+        @Override
+        public Map<String, Long> getP50Micros() {
+            Map<String, Long> p50 = new TreeMap<>();
+            registry.snapshot().getHistograms().forEach((name, histogram) -> p50.put(name, histogram.getP50Nanos() / 1000));
+            return p50;
+        }
+
+        @Override
+        public Map<String, Long> getP99Micros() {
+            Map<String, Long> p99 = new TreeMap<>();
+            registry.snapshot().getHistograms().forEach((name, histogram) -> p99.put(name, histogram.getP99Nanos() / 1000));
+            return p99;
+        }
+
+        @Override
+        public String[] getSummary() {
+            return registry.snapshot().format().toArray(new String[0]);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Values of all metrics in a registry at one point in time.
+ */
+public class MetricsSnapshot {
+
+    private final long timestampMillis;
+    private final long elapsedNanos;
+    private final Map<String, Long> counters;
+    private final Map<String, LatencyHistogram.Snapshot> histograms;
+
+    MetricsSnapshot(long timestampMillis, long elapsedNanos, Map<String, Long> counters, Map<String, LatencyHistogram.Snapshot> histograms) {
+        this.timestampMillis = timestampMillis;
+        this.elapsedNanos = elapsedNanos;
+        this.counters = Collections.unmodifiableMap(counters);
+        this.histograms = Collections.unmodifiableMap(histograms);
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    /**
+     * @return Counter values by name, sorted by name
+     */
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    /**
+     * @return Histograms by name, sorted by name
+     */
+    public Map<String, LatencyHistogram.Snapshot> getHistograms() {
+        return histograms;
+    }
+
+    /**
+     * @return Average number of operations per second recorded in the named histogram, or 0 if there is no such histogram
+     */
+    public double getThroughputPerSecond(String histogramName) {
+        LatencyHistogram.Snapshot histogram = histograms.get(histogramName);
+        if(histogram == null || elapsedNanos <= 0) {
+            return 0;
+        }
+        return histogram.getCount() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return One line per metric, counters first, latencies in microseconds
+     */
+    public List<String> format() {
+        List<String> lines = new ArrayList<>();
+        lines.add("# metrics at " + Instant.ofEpochMilli(timestampMillis) + ", " + elapsedNanos / 1_000_000 + " ms after start");
+        counters.forEach((name, value) -> lines.add("counter " + name + " " + value));
+        histograms.forEach((name, histogram) -> lines.add(String.format("latency %s count=%d rate=%.1f/s mean=%dus p50=%dus p99=%dus max=%dus",
+                name, histogram.getCount(), getThroughputPerSecond(name), histogram.getMeanNanos() / 1000,
+                histogram.getP50Nanos() / 1000, histogram.getP99Nanos() / 1000, histogram.getMaxNanos() / 1000)));
+        return lines;
+    }
+
+    /**
+     * Writes the snapshot as text, replacing the file atomically so a reader never sees half of it.
+     */
+    public void writeTo(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, format(), StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
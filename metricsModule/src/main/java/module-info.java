@@ -0,0 +1,4 @@
+module metricsModule {
+    exports metrics;
+    requires transitive java.management;
+}
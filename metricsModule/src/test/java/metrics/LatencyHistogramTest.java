@@ -0,0 +1,85 @@
+package metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class LatencyHistogramTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void bucketOf_everyBucket_boundsContainValue() {
+        for(int bucket = 0; bucket < LatencyHistogram.BUCKETS; bucket++) {
+            long lowest = LatencyHistogram.lowestValueOf(bucket);
+            long highest = LatencyHistogram.highestValueOf(bucket);
+            Assertions.assertEquals(bucket, LatencyHistogram.bucketOf(lowest));
+            Assertions.assertEquals(bucket, LatencyHistogram.bucketOf(highest));
+            Assertions.assertTrue(highest - lowest <= Math.max(1, lowest / 32), "bucket " + bucket + " too wide");
+        }
+    }
+
+    @Test
+    void percentiles_uniformMicroseconds_withinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(int micros = 1; micros <= 1000; micros++) {
+            histogram.recordNanos(micros * 1000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        Assertions.assertEquals(1000, snapshot.getCount());
+        Assertions.assertEquals(500_000, snapshot.getP50Nanos(), 500_000 / 32.0);
+        Assertions.assertEquals(990_000, snapshot.getP99Nanos(), 990_000 / 32.0);
+        Assertions.assertEquals(1_000_000, snapshot.getMaxNanos());
+        Assertions.assertEquals(500_500, snapshot.getMeanNanos());
+    }
+
+    @Test
+    void percentiles_empty_zero() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+
+        Assertions.assertEquals(0, snapshot.getCount());
+        Assertions.assertEquals(0, snapshot.getP99Nanos());
+    }
+
+    @Test
+    void recordNanos_manyThreads_noValuesLost() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for(int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for(int j = 0; j < 10_000; j++) {
+                    histogram.recordNanos(j);
+                }
+            });
+            threads[i].start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+
+        Assertions.assertEquals(40_000, histogram.snapshot().getCount());
+    }
+
+    @Test
+    void writeTo_registryWithMetrics_oneLinePerMetric() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("image.cats").add(3);
+        registry.histogram("image.imageContainsCat").recordNanos(2_000_000);
+        Path file = directory.resolve("metrics.txt");
+
+        registry.snapshot().writeTo(file);
+
+        List<String> lines = Files.readAllLines(file);
+        Assertions.assertEquals(3, lines.size());
+        Assertions.assertEquals("counter image.cats 3", lines.get(1));
+        Assertions.assertTrue(lines.get(2).startsWith("latency image.imageContainsCat count=1 "), lines.get(2));
+        Assertions.assertTrue(lines.get(2).contains(" p99=2000us "), lines.get(2));
+    }
+}
@@ -6,6 +6,7 @@ package catpoint.application;
 public class CatpointApp {
     public static void main(String[] args) {
         CatpointGui gui = new CatpointGui();
+        Runtime.getRuntime().addShutdownHook(new Thread(gui::shutdown));
         gui.setVisible(true);
     }
 }
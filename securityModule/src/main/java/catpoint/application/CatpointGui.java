@@ -1,14 +1,24 @@
 package catpoint.application;
 
+import catpoint.data.MeteredSecurityRepository;
 import catpoint.data.PretendDatabaseSecurityRepositoryImpl;
-import catpoint.data.SecurityRepository;
+import catpoint.data.WriteBehindSecurityRepository;
 import catpoint.data.service.FakeImageService;
 
+import catpoint.service.AlarmStateMachine;
 import catpoint.service.SecurityService;
+import catpoint.service.StatusListenerDispatcher;
+import metrics.MetricsRegistry;
 import net.miginfocom.swing.MigLayout;
 import service.ImageServiceInterface;
+import service.MeteredImageService;
 
+import javax.management.JMException;
 import javax.swing.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * This is the primary JFrame for the application that contains all the top-level JPanels.
@@ -17,9 +27,16 @@ import javax.swing.*;
  * all our dependencies and providing them to other classes as necessary.
  */
 public class CatpointGui extends JFrame {
-    private SecurityRepository securityRepository = new PretendDatabaseSecurityRepositoryImpl();
-    private ImageServiceInterface imageService = new FakeImageService();
-    private SecurityService securityService = new SecurityService(securityRepository, imageService);
+    private static final String METRICS_MBEAN = "catpoint:type=Metrics";
+    private static final Path METRICS_FILE = Paths.get(System.getProperty("user.home"), ".catpoint", "metrics.txt");
+
+    private MetricsRegistry metrics = new MetricsRegistry();
+    private PretendDatabaseSecurityRepositoryImpl storedRepository = new PretendDatabaseSecurityRepositoryImpl();
+    private WriteBehindSecurityRepository securityRepository = new WriteBehindSecurityRepository(
+            new MeteredSecurityRepository(storedRepository, metrics), 500, 64);
+    private ImageServiceInterface imageService = new MeteredImageService(new FakeImageService(), metrics);
+    private SecurityService securityService = new SecurityService(securityRepository, imageService, null,
+            StatusListenerDispatcher.async(true), AlarmStateMachine.loadFrom(securityRepository));
     private DisplayPanel displayPanel = new DisplayPanel(securityService);
     private ControlPanel controlPanel = new ControlPanel(securityService);
     private SensorPanel sensorPanel = new SensorPanel(securityService);
@@ -40,5 +57,26 @@ public class CatpointGui extends JFrame {
 
         getContentPane().add(mainPanel);
 
+        securityService.setMetricsRegistry(metrics);
+        try {
+            metrics.registerMBean(METRICS_MBEAN);
+        } catch (JMException exception) {
+            //JMX is optional, the metrics are still written to METRICS_FILE on exit
+        }
+    }
+
+    /**
+     * Stops background work and saves state that is only written on exit, so the next launch starts quickly.
+     * The metrics gathered during the session are written to ~/.catpoint/metrics.txt.
+     */
+    public void shutdown() {
+        securityService.shutdown();
+        securityRepository.shutdown(); //drain pending writes before the snapshot is taken
+        storedRepository.saveSnapshot();
+        try {
+            metrics.snapshot().writeTo(METRICS_FILE);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to write metrics", ioe);
+        }
     }
 }
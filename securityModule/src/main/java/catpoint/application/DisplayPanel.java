@@ -37,9 +37,12 @@ public class DisplayPanel extends JPanel implements StatusListener {
 
     @Override
     public void notify(AlarmStatus status) {
-        currentStatusLabel.setText(status.getDescription());
-        currentStatusLabel.setBackground(status.getColor());
-        currentStatusLabel.setOpaque(true);
+        //may be called from an image analysis thread
+        SwingUtilities.invokeLater(() -> {
+            currentStatusLabel.setText(status.getDescription());
+            currentStatusLabel.setBackground(status.getColor());
+            currentStatusLabel.setOpaque(true);
+        });
     }
 
     @Override
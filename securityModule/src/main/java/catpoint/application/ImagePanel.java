@@ -4,6 +4,7 @@ import catpoint.data.AlarmStatus;
 import catpoint.service.SecurityService;
 import catpoint.service.StyleService;
 import net.miginfocom.swing.MigLayout;
+import service.ImagePreprocessor;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
@@ -51,8 +52,7 @@ public class ImagePanel extends JPanel implements StatusListener {
             }
             try {
                 currentCameraImage = ImageIO.read(chooser.getSelectedFile());
-                Image tmp = new ImageIcon(currentCameraImage).getImage();
-                cameraLabel.setIcon(new ImageIcon(tmp.getScaledInstance(IMAGE_WIDTH, IMAGE_HEIGHT, Image.SCALE_SMOOTH)));
+                cameraLabel.setIcon(new ImageIcon(ImagePreprocessor.scale(currentCameraImage, IMAGE_WIDTH, IMAGE_HEIGHT)));
             } catch (IOException |NullPointerException ioe) {
                 JOptionPane.showMessageDialog(null, "Invalid image selected.");
             }
@@ -61,8 +61,12 @@ public class ImagePanel extends JPanel implements StatusListener {
 
         //button that sends the image to the image service
         JButton scanPictureButton = new JButton("Scan Picture");
+        //analysis runs on a worker thread so a slow image service doesn't freeze the UI
         scanPictureButton.addActionListener(e -> {
-            securityService.processImage(currentCameraImage);
+            securityService.processImageAsync(currentCameraImage).exceptionally(throwable -> {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null, "Unable to scan picture."));
+                return null;
+            });
         });
 
         add(cameraHeader, "span 3, wrap");
@@ -78,11 +82,14 @@ public class ImagePanel extends JPanel implements StatusListener {
 
     @Override
     public void catDetected(boolean catDetected) {
-        if(catDetected) {
-            cameraHeader.setText("DANGER - CAT DETECTED");
-        } else {
-            cameraHeader.setText("Camera Feed - No Cats Detected");
-        }
+        //may be called from an image analysis thread
+        SwingUtilities.invokeLater(() -> {
+            if(catDetected) {
+                cameraHeader.setText("DANGER - CAT DETECTED");
+            } else {
+                cameraHeader.setText("Camera Feed - No Cats Detected");
+            }
+        });
     }
 
     @Override
@@ -91,7 +91,7 @@ public class SensorPanel extends JPanel {
      * @param sensor The sensor to update
      * @param isActive The sensor's activation status
      */
-    private void setSensorActivity(Sensor sensor, Boolean isActive) {
+    private void setSensorActivity(Sensor sensor, boolean isActive) {
         securityService.changeSensorActivationStatus(sensor, isActive);
         updateSensorList(sensorListPanel);
     }
@@ -0,0 +1,296 @@
+package catpoint.camera;
+
+import catpoint.service.SecurityService;
+import service.FrameDifferenceGate;
+import service.ImageServiceInterface;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Feeds frames from many cameras to a shared pool of detection workers and reports each camera's
+ * verdicts to the security service.
+ *
+ * Every camera has a small queue of its own. When a camera delivers frames faster than they are
+ * analyzed, its oldest waiting frame is dropped, so analysis always works on recent footage and a
+ * busy camera can't hold up the others. Cameras take turns: a camera that was just served goes to
+ * the back of the line, and it isn't served again before its frame rate cap allows. Frames of one
+ * camera are analyzed one at a time and in order, each camera with its own frame difference gate.
+ * Frames are checked against the security service's confidence threshhold at the time. Frames
+ * that came JPEG encoded are handed to the image service along with their bytes.
+ */
+public class CameraScheduler {
+
+    private final SecurityService securityService;
+    private final ImageServiceInterface imageService;
+    private final int framesPerCamera;
+    private final DelayQueue<CameraChannel> ready = new DelayQueue<>();
+    private final Map<String, CameraChannel> cameras = new ConcurrentHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    /**
+     * @param imageService Service used to analyze each frame
+     * @param workerCount Number of frames that can be analyzed concurrently, across all cameras
+     * @param framesPerCamera Number of frames a camera may have waiting before its oldest is dropped
+     */
+    public CameraScheduler(SecurityService securityService, ImageServiceInterface imageService,
+                           int workerCount, int framesPerCamera) {
+        if(workerCount < 1 || framesPerCamera < 1) {
+            throw new IllegalArgumentException("Worker count and frames per camera must be positive");
+        }
+        this.securityService = securityService;
+        this.imageService = imageService;
+        this.framesPerCamera = framesPerCamera;
+        for(int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::work, "camera-analysis-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Starts the camera and analyzes its frames from now on.
+     * @param maxFramesPerSecond Most frames of this camera to analyze per second
+     */
+    public void addCamera(CameraSource source, double maxFramesPerSecond) {
+        if(maxFramesPerSecond <= 0) {
+            throw new IllegalArgumentException("Frame rate must be positive");
+        }
+        CameraChannel channel = new CameraChannel(source, (long) (TimeUnit.SECONDS.toNanos(1) / maxFramesPerSecond));
+        if(cameras.putIfAbsent(source.getId(), channel) != null) {
+            throw new IllegalArgumentException("Camera " + source.getId() + " already added");
+        }
+        source.startEncoded(channel::post);
+    }
+
+    /**
+     * Stops the camera and drops its waiting frames. A cat only this camera saw no longer counts.
+     */
+    public void removeCamera(String cameraId) {
+        CameraChannel channel = cameras.remove(cameraId);
+        if(channel == null) {
+            return;
+        }
+        channel.source.stop();
+        synchronized (channel.verdictLock) {
+            channel.close();
+        }
+        securityService.cameraRemoved(cameraId);
+    }
+
+    private void work() {
+        while(running) {
+            CameraChannel channel;
+            try {
+                channel = ready.take();
+            } catch (InterruptedException exception) {
+                break;
+            }
+            Frame frame = channel.startFrame();
+            try {
+                if(frame != null) {
+                    analyze(channel, frame);
+                }
+            } finally {
+                channel.finishFrame();
+            }
+        }
+    }
+
+    private void analyze(CameraChannel channel, Frame frame) {
+        if(!channel.gate.hasChanged(frame.image)) {
+            channel.unchanged.incrementAndGet();
+            securityService.reapplyCameraVerdict(); //same scene as this camera's last analyzed frame, so its verdict still stands
+            return;
+        }
+        boolean cat;
+        try {
+            float confidenceThreshhold = securityService.getConfidenceThreshhold();
+            cat = frame.jpeg == null ? imageService.imageContainsCat(frame.image, confidenceThreshhold)
+                    : imageService.jpegContainsCat(frame.jpeg, frame.image, confidenceThreshhold);
+        } catch (RuntimeException exception) {
+            //the frame that passed the gate never got a verdict, so don't let it suppress the next one
+            channel.gate.reset();
+            channel.failed.incrementAndGet();
+            return;
+        }
+        channel.analyzed.incrementAndGet();
+        synchronized (channel.verdictLock) {
+            if(!channel.closed) {
+                securityService.cameraVerdict(channel.source.getId(), cat);
+            }
+        }
+    }
+
+    /**
+     * @return What happened to the camera's frames so far, or null if there is no such camera
+     */
+    public CameraStatistics getStatistics(String cameraId) {
+        CameraChannel channel = cameras.get(cameraId);
+        return channel == null ? null : new CameraStatistics(channel.received.get(), channel.dropped.get(),
+                channel.unchanged.get(), channel.analyzed.get(), channel.failed.get());
+    }
+
+    /**
+     * Stops all cameras and workers. Frames still waiting are dropped.
+     */
+    public void shutdown() {
+        running = false;
+        cameras.values().forEach(channel -> {
+            channel.source.stop();
+            channel.close();
+        });
+        workers.forEach(Thread::interrupt);
+        ready.clear();
+    }
+
+    /**
+     * One camera's frames and scheduling state. A channel is either idle, waiting in the ready
+     * queue, or being served by exactly one worker, so its frames are analyzed strictly in turn.
+     */
+    private class CameraChannel implements Delayed {
+        private final CameraSource source;
+        private final long frameIntervalNanos;
+        private final FrameDifferenceGate gate = new FrameDifferenceGate();
+        private final Object verdictLock = new Object();
+
+        private final Deque<Frame> frames = new ArrayDeque<>(); //guarded by this
+        private boolean scheduled; //guarded by this, true while waiting in the ready queue or being served
+        private volatile boolean closed; //set while holding verdictLock on removal, so no verdict lands afterwards
+        private long lastServedAt; //guarded by this
+        private volatile long readyAt; //only changes while the channel is out of the ready queue
+
+        private final AtomicLong received = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong unchanged = new AtomicLong();
+        private final AtomicLong analyzed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        private CameraChannel(CameraSource source, long frameIntervalNanos) {
+            this.source = source;
+            this.frameIntervalNanos = frameIntervalNanos;
+            this.lastServedAt = System.nanoTime() - frameIntervalNanos;
+        }
+
+        private synchronized void post(BufferedImage frame, byte[] jpeg) {
+            if(closed || frame == null) {
+                return;
+            }
+            received.incrementAndGet();
+            if(frames.size() == framesPerCamera) {
+                frames.pollFirst();
+                dropped.incrementAndGet();
+            }
+            frames.addLast(new Frame(frame, jpeg));
+            if(!scheduled) {
+                scheduled = true;
+                enqueue();
+            }
+        }
+
+        private synchronized Frame startFrame() {
+            lastServedAt = System.nanoTime();
+            return frames.pollFirst();
+        }
+
+        private synchronized void finishFrame() {
+            if(closed || frames.isEmpty() || !running) {
+                scheduled = false;
+            } else {
+                enqueue();
+            }
+        }
+
+        /**
+         * Puts the channel in line for its next frame, no earlier than its frame rate cap allows.
+         */
+        private void enqueue() {
+            readyAt = Math.max(System.nanoTime(), lastServedAt + frameIntervalNanos);
+            ready.add(this);
+        }
+
+        private synchronized void close() {
+            closed = true;
+            frames.clear();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(readyAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(readyAt, ((CameraChannel) other).readyAt);
+        }
+    }
+
+    /**
+     * A frame and, if it came JPEG encoded, its bytes.
+     */
+    private static class Frame {
+        private final BufferedImage image;
+        private final byte[] jpeg;
+
+        private Frame(BufferedImage image, byte[] jpeg) {
+            this.image = image;
+            this.jpeg = jpeg;
+        }
+    }
+
+    /**
+     * Frame counts of one camera.
+     */
+    public static class CameraStatistics {
+        private final long received;
+        private final long dropped;
+        private final long unchanged;
+        private final long analyzed;
+        private final long failed;
+
+        private CameraStatistics(long received, long dropped, long unchanged, long analyzed, long failed) {
+            this.received = received;
+            this.dropped = dropped;
+            this.unchanged = unchanged;
+            this.analyzed = analyzed;
+            this.failed = failed;
+        }
+
+        public long getReceived() {
+            return received;
+        }
+
+        /**
+         * @return Frames replaced by newer ones before a worker got to them
+         */
+        public long getDropped() {
+            return dropped;
+        }
+
+        /**
+         * @return Frames skipped because the scene hadn't changed since the last analyzed frame
+         */
+        public long getUnchanged() {
+            return unchanged;
+        }
+
+        public long getAnalyzed() {
+            return analyzed;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+    }
+}
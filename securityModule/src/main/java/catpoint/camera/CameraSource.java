@@ -0,0 +1,32 @@
+package catpoint.camera;
+
+import java.awt.image.BufferedImage;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * A camera that delivers a stream of frames. Sources push frames from their own thread as they
+ * arrive; the consumer must not block for long.
+ */
+public interface CameraSource {
+
+    /**
+     * @return Name of the camera, unique among the cameras of one scheduler
+     */
+    String getId();
+
+    /**
+     * Starts delivering frames to the consumer until {@link #stop()} is called.
+     */
+    void start(Consumer<BufferedImage> frameConsumer);
+
+    /**
+     * Same as start, also handing over the JPEG bytes each frame was decoded from, so they can be
+     * sent on without encoding the frame again. Sources whose frames didn't come as JPEG pass null.
+     */
+    default void startEncoded(BiConsumer<BufferedImage, byte[]> frameConsumer) {
+        start(frame -> frameConsumer.accept(frame, null));
+    }
+
+    void stop();
+}
@@ -0,0 +1,115 @@
+package catpoint.camera;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Camera that delivers every image written into a directory, as a camera uploading snapshots
+ * would. Files that can't be decoded yet, e.g. because they are still being written, are
+ * picked up again on their next modification. JPEG files are handed on along with their bytes.
+ */
+public class DirectoryCameraSource implements CameraSource {
+
+    private final String id;
+    private final Path directory;
+    private WatchService watchService;
+    private Thread watcher;
+
+    public DirectoryCameraSource(String id, Path directory) {
+        this.id = id;
+        this.directory = directory;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void start(Consumer<BufferedImage> frameConsumer) {
+        startEncoded((frame, jpeg) -> frameConsumer.accept(frame));
+    }
+
+    @Override
+    public synchronized void startEncoded(BiConsumer<BufferedImage, byte[]> frameConsumer) {
+        if(watcher != null) {
+            throw new IllegalStateException("Camera " + id + " already started");
+        }
+        try {
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to watch " + directory, ioe);
+        }
+        WatchService watching = watchService;
+        watcher = new Thread(() -> watch(watching, frameConsumer), "camera-" + id);
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch(WatchService watching, BiConsumer<BufferedImage, byte[]> frameConsumer) {
+        try {
+            while(true) {
+                WatchKey key = watching.take();
+                for(WatchEvent<?> event : key.pollEvents()) {
+                    if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        continue; //events were lost, the next file written brings us back in step
+                    }
+                    read(directory.resolve((Path) event.context()), frameConsumer);
+                }
+                if(!key.reset()) {
+                    return; //directory is gone
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException exception) {
+            //stopped
+        }
+    }
+
+    private static void read(Path file, BiConsumer<BufferedImage, byte[]> frameConsumer) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean jpeg = name.endsWith(".jpg") || name.endsWith(".jpeg");
+        if(!(jpeg || name.endsWith(".png") || name.endsWith(".bmp") || name.endsWith(".gif"))) {
+            return;
+        }
+        byte[] bytes;
+        BufferedImage frame;
+        try {
+            bytes = Files.readAllBytes(file);
+            frame = ImageIO.read(new ByteArrayInputStream(bytes));
+        } catch (IOException ioe) {
+            return; //incomplete or unreadable, wait for the next event
+        }
+        if(frame != null) {
+            frameConsumer.accept(frame, jpeg ? bytes : null);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if(watcher == null) {
+            return;
+        }
+        try {
+            watchService.close();
+        } catch (IOException ioe) {
+            //closing anyway
+        }
+        watcher.interrupt();
+        watcher = null;
+        watchService = null;
+    }
+}
@@ -0,0 +1,204 @@
+package catpoint.camera;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Camera that plays back a recorded MJPEG file, a plain concatenation of JPEG images, at a fixed
+ * frame rate. Frames are cut at the JPEG start and end of image markers, following the marker
+ * segments in between, so the file is streamed rather than loaded whole.
+ */
+public class MjpegFileCameraSource implements CameraSource {
+
+    private final String id;
+    private final Path file;
+    private final long frameIntervalNanos;
+    private final boolean loop;
+    private Thread player;
+
+    /**
+     * @param framesPerSecond Playback rate
+     * @param loop True to start over at the end of the file, false to stop delivering frames
+     */
+    public MjpegFileCameraSource(String id, Path file, double framesPerSecond, boolean loop) {
+        if(framesPerSecond <= 0) {
+            throw new IllegalArgumentException("Frame rate must be positive");
+        }
+        this.id = id;
+        this.file = file;
+        this.frameIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / framesPerSecond);
+        this.loop = loop;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void start(Consumer<BufferedImage> frameConsumer) {
+        startEncoded((frame, jpeg) -> frameConsumer.accept(frame));
+    }
+
+    @Override
+    public synchronized void startEncoded(BiConsumer<BufferedImage, byte[]> frameConsumer) {
+        if(player != null) {
+            throw new IllegalStateException("Camera " + id + " already started");
+        }
+        player = new Thread(() -> play(frameConsumer), "camera-" + id);
+        player.setDaemon(true);
+        player.start();
+    }
+
+    private void play(BiConsumer<BufferedImage, byte[]> frameConsumer) {
+        long nextFrameAt = System.nanoTime();
+        try {
+            int played;
+            do {
+                played = 0;
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+                    byte[] jpeg;
+                    while((jpeg = nextJpeg(in)) != null) {
+                        BufferedImage frame = decode(jpeg);
+                        if(frame == null) {
+                            continue; //corrupt frame, skip it like a camera would
+                        }
+                        long wait = nextFrameAt - System.nanoTime();
+                        if(wait > 0) {
+                            TimeUnit.NANOSECONDS.sleep(wait);
+                        }
+                        nextFrameAt = Math.max(nextFrameAt + frameIntervalNanos, System.nanoTime()); //don't catch up in a burst after a stall
+                        frameConsumer.accept(frame, jpeg);
+                        played++;
+                    }
+                }
+            } while(loop && played > 0 && !Thread.currentThread().isInterrupted());
+        } catch (IOException | InterruptedException exception) {
+            //stopped, or the recording can't be read any more
+        }
+    }
+
+    /**
+     * @return The decoded frame, or null if it can't be decoded
+     */
+    private static BufferedImage decode(byte[] jpeg) {
+        try {
+            return ImageIO.read(new ByteArrayInputStream(jpeg));
+        } catch (IOException | RuntimeException exception) {
+            //e.g. a bad Huffman table; decoders throw either kind, and the frames around it may still be fine
+            return null;
+        }
+    }
+
+    /**
+     * Reads the bytes of the next JPEG image, from its start of image marker to its end of image marker.
+     * Marker segments are skipped by their length, so an end of image marker inside one, such as that
+     * of an EXIF thumbnail in APP1, doesn't cut the frame short.
+     * @return The image bytes, or null at the end of the stream
+     */
+    static byte[] nextJpeg(InputStream in) throws IOException {
+        int previous = -1;
+        int b;
+        while((b = in.read()) != -1) {
+            if(previous == 0xFF && b == 0xD8) {
+                break;
+            }
+            previous = b;
+        }
+        if(b == -1) {
+            return null;
+        }
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream(64 * 1024);
+        jpeg.write(0xFF);
+        jpeg.write(0xD8);
+        int marker = nextMarker(in);
+        while(marker != -1) {
+            jpeg.write(0xFF);
+            jpeg.write(marker);
+            if(marker == 0xD9) {
+                return jpeg.toByteArray();
+            }
+            if(marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                marker = nextMarker(in); //no length or payload
+                continue;
+            }
+            int high = in.read();
+            int low = in.read();
+            if(low == -1) {
+                return null;
+            }
+            int length = (high << 8) | low;
+            if(length < 2) {
+                return null; //corrupt segment length, don't trust the rest of the frame
+            }
+            jpeg.write(high);
+            jpeg.write(low);
+            byte[] payload = in.readNBytes(length - 2);
+            if(payload.length < length - 2) {
+                return null;
+            }
+            jpeg.write(payload);
+            marker = marker == 0xDA ? copyScan(in, jpeg) : nextMarker(in);
+        }
+        return null; //truncated last frame
+    }
+
+    /**
+     * Skips to the next marker, including any fill bytes before it.
+     * @return The marker code, or -1 at the end of the stream
+     */
+    private static int nextMarker(InputStream in) throws IOException {
+        int b;
+        do {
+            b = in.read();
+        } while(b != -1 && b != 0xFF);
+        while(b == 0xFF) {
+            b = in.read();
+        }
+        return b;
+    }
+
+    /**
+     * Copies entropy coded scan data, in which 0xFF is followed by 0x00 (a stuffed byte) or a
+     * restart marker, up to the first marker that ends the scan.
+     * @return That marker's code, or -1 at the end of the stream
+     */
+    private static int copyScan(InputStream in, ByteArrayOutputStream jpeg) throws IOException {
+        int b;
+        while((b = in.read()) != -1) {
+            if(b != 0xFF) {
+                jpeg.write(b);
+                continue;
+            }
+            int next = in.read();
+            while(next == 0xFF) {
+                next = in.read();
+            }
+            if(next == 0x00 || (next >= 0xD0 && next <= 0xD7)) {
+                jpeg.write(0xFF);
+                jpeg.write(next);
+            } else {
+                return next;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public synchronized void stop() {
+        if(player != null) {
+            player.interrupt();
+            player = null;
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package catpoint.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Repository that keeps its state in memory and persists every change as a record in an
+ * append-only log file. Records are collected in memory and written with a single fsync
+ * by a background thread (group commit), so callers never wait on the disk. Once the log
+ * grows past a threshold, the full state is written to a snapshot and the log is truncated.
+ *
+ * On startup the snapshot is loaded and the log replayed on top of it. A torn record at the
+ * end of the log (from a crash mid-write) fails its checksum and is discarded, so recovery
+ * always lands on the last fully written change.
+ *
+ * Record layout: int length, body (type byte + payload), int CRC32 of the body.
+ */
+public class LogFileSecurityRepositoryImpl implements SecurityRepository {
+
+    private static final String LOG_FILE = "security.log";
+    private static final String SNAPSHOT_FILE = "security.snapshot";
+    private static final int SNAPSHOT_MAGIC = 0xCA7901;
+
+    //record types
+    private static final byte ALARM_STATUS = 1;
+    private static final byte ARMING_STATUS = 2;
+    private static final byte SENSOR_PUT = 3;
+    private static final byte SENSOR_REMOVE = 4;
+
+    private static final long DEFAULT_SYNC_INTERVAL_MILLIS = 5;
+    private static final int DEFAULT_COMPACTION_THRESHOLD = 10_000;
+
+    private final Path logFile;
+    private final Path snapshotFile;
+    private final int compactionThreshold;
+    private final FileChannel log;
+    private final ScheduledExecutorService committer;
+
+    //guards the file channel; always taken before the monitor of this object
+    private final Object commitLock = new Object();
+
+    private final SensorIndex sensors = new SensorIndex();
+    private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    //records appended since the last commit
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private int recordsSinceSnapshot;
+    //length of the log up to the end of the last group written in full; guarded by the commit lock
+    private long committedLength;
+
+    public LogFileSecurityRepositoryImpl(Path directory) {
+        this(directory, DEFAULT_SYNC_INTERVAL_MILLIS, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * @param directory Directory holding the log and snapshot files. Created if missing.
+     * @param syncIntervalMillis How often pending records are written and synced to disk
+     * @param compactionThreshold Number of log records after which a snapshot is taken
+     */
+    public LogFileSecurityRepositoryImpl(Path directory, long syncIntervalMillis, int compactionThreshold) {
+        this.logFile = directory.resolve(LOG_FILE);
+        this.snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        this.compactionThreshold = compactionThreshold;
+        try {
+            Files.createDirectories(directory);
+            loadSnapshot();
+            long validLength = replayLog();
+            log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            log.truncate(validLength);
+            committedLength = validLength;
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to open security log in " + directory, ioe);
+        }
+
+        committer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "security-log-committer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        committer.scheduleWithFixedDelay(this::commitAndCompact, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void loadSnapshot() throws IOException {
+        if(!Files.exists(snapshotFile)) {
+            return;
+        }
+        byte[] bytes = Files.readAllBytes(snapshotFile);
+        if(bytes.length < Integer.BYTES) {
+            throw new IOException("Corrupt snapshot " + snapshotFile);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - Integer.BYTES);
+        if((int) crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - Integer.BYTES, Integer.BYTES).getInt()) {
+            throw new IOException("Corrupt snapshot " + snapshotFile);
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if(in.readInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Unknown snapshot format " + snapshotFile);
+        }
+        alarmStatus = AlarmStatus.values()[in.readUnsignedByte()];
+        armingStatus = ArmingStatus.values()[in.readUnsignedByte()];
+        int count = in.readInt();
+        for(int i = 0; i < count; i++) {
+            sensors.put(SensorCodec.readSensor(in));
+        }
+    }
+
+    /**
+     * Applies every intact record in the log.
+     * @return The length of the valid prefix of the log
+     */
+    private long replayLog() throws IOException {
+        if(!Files.exists(logFile)) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(logFile));
+        CRC32 crc = new CRC32();
+        while(buffer.remaining() >= Integer.BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if(length <= 0 || buffer.remaining() < length + Integer.BYTES) {
+                return start;
+            }
+            crc.reset();
+            crc.update(buffer.array(), buffer.position(), length);
+            DataInputStream body = new DataInputStream(new ByteArrayInputStream(buffer.array(), buffer.position(), length));
+            buffer.position(buffer.position() + length);
+            if((int) crc.getValue() != buffer.getInt()) {
+                return start;
+            }
+            applyRecord(body);
+            recordsSinceSnapshot++;
+        }
+        return buffer.position();
+    }
+
+    private void applyRecord(DataInputStream body) throws IOException {
+        switch(body.readByte()) {
+            case ALARM_STATUS -> alarmStatus = AlarmStatus.values()[body.readUnsignedByte()];
+            case ARMING_STATUS -> armingStatus = ArmingStatus.values()[body.readUnsignedByte()];
+            case SENSOR_PUT -> sensors.put(SensorCodec.readSensor(body));
+            case SENSOR_REMOVE -> sensors.remove(SensorCodec.readSensorId(body));
+            default -> throw new IOException("Unknown log record type");
+        }
+    }
+
+    /**
+     * Encodes a record into the pending group. Must be called while holding this object's monitor.
+     */
+    private void append(byte type, RecordWriter payload) {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(body);
+            out.writeByte(type);
+            payload.write(out);
+
+            CRC32 crc = new CRC32();
+            crc.update(body.toByteArray());
+            DataOutputStream record = new DataOutputStream(pending);
+            record.writeInt(body.size());
+            body.writeTo(record);
+            record.writeInt((int) crc.getValue());
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+        recordsSinceSnapshot++;
+    }
+
+    /**
+     * Writes all pending records to the log and syncs it to disk.
+     */
+    @Override
+    public void flush() {
+        synchronized (commitLock) {
+            commit();
+        }
+    }
+
+    private void commit() {
+        byte[] group;
+        synchronized (this) {
+            if(pending.size() == 0) {
+                return;
+            }
+            group = pending.toByteArray();
+            pending.reset();
+        }
+        try {
+            //start at the end of the last complete group, so a retry overwrites anything a failed write left behind
+            log.position(committedLength);
+            ByteBuffer buffer = ByteBuffer.wrap(group);
+            while(buffer.hasRemaining()) {
+                log.write(buffer);
+            }
+            log.force(false);
+            committedLength = log.position();
+        } catch (IOException ioe) {
+            synchronized (this) {
+                //put the group back ahead of anything appended meanwhile, so the next commit retries it in order
+                byte[] newer = pending.toByteArray();
+                pending.reset();
+                pending.write(group, 0, group.length);
+                pending.write(newer, 0, newer.length);
+            }
+            throw new UncheckedIOException("Unable to write security log", ioe);
+        }
+    }
+
+    private void commitAndCompact() {
+        try {
+            synchronized (commitLock) {
+                commit();
+                boolean compactionDue;
+                synchronized (this) {
+                    compactionDue = recordsSinceSnapshot >= compactionThreshold;
+                }
+                if(compactionDue) {
+                    compact();
+                }
+            }
+        } catch (RuntimeException exception) {
+            //the records stay pending and are retried on the next run; an escaping exception would cancel the schedule
+            Thread current = Thread.currentThread();
+            current.getUncaughtExceptionHandler().uncaughtException(current, exception);
+        }
+    }
+
+    /**
+     * Writes the current state to a new snapshot and empties the log. Must be called while
+     * holding the commit lock, right after a commit. The state is copied under this object's
+     * monitor; the file work happens outside it, so readers and writers don't wait on the disk.
+     */
+    private void compact() {
+        byte[] snapshot;
+        int compacted;
+        synchronized (this) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeByte(alarmStatus.ordinal());
+                out.writeByte(armingStatus.ordinal());
+                out.writeInt(sensors.size());
+                for(Sensor sensor : sensors.values()) {
+                    SensorCodec.writeSensor(out, sensor);
+                }
+                CRC32 crc = new CRC32();
+                crc.update(bytes.toByteArray());
+                out.writeInt((int) crc.getValue());
+                snapshot = bytes.toByteArray();
+            } catch (IOException ioe) {
+                throw new UncheckedIOException("Unable to compact security log", ioe);
+            }
+            compacted = recordsSinceSnapshot;
+            recordsSinceSnapshot = 0;
+        }
+        try {
+            Path tmp = snapshotFile.resolveSibling(SNAPSHOT_FILE + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(snapshot);
+                while(buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            //replaying the old log over the new snapshot is harmless, so a crash before this point loses nothing
+            log.truncate(0);
+            log.force(true);
+            committedLength = 0;
+        } catch (IOException ioe) {
+            synchronized (this) {
+                recordsSinceSnapshot += compacted; //the log still holds them, so compaction is still due
+            }
+            throw new UncheckedIOException("Unable to compact security log", ioe);
+        }
+    }
+
+    /**
+     * Stops the background committer, writes any pending records and closes the log.
+     */
+    public void close() {
+        committer.shutdown();
+        try {
+            committer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (commitLock) {
+            commit();
+            try {
+                log.close();
+            } catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        sensors.put(sensor);
+        append(SENSOR_PUT, out -> SensorCodec.writeSensor(out, sensor));
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        sensors.remove(sensor.getSensorId());
+        append(SENSOR_REMOVE, out -> SensorCodec.writeSensorId(out, sensor.getSensorId()));
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        sensors.put(sensor);
+        append(SENSOR_PUT, out -> SensorCodec.writeSensor(out, sensor));
+    }
+
+    /**
+     * Appends all records under one lock, so they always land in the same commit group.
+     */
+    @Override
+    public synchronized void updateSensors(Collection<Sensor> changed) {
+        changed.forEach(this::updateSensor);
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+        append(ALARM_STATUS, out -> out.writeByte(alarmStatus.ordinal()));
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+        append(ARMING_STATUS, out -> out.writeByte(armingStatus.ordinal()));
+    }
+
+    @Override
+    public synchronized Set<Sensor> getSensors() {
+        return sensors.sorted();
+    }
+
+    @Override
+    public synchronized Sensor findSensor(UUID sensorId) {
+        return sensors.get(sensorId);
+    }
+
+    @Override
+    public synchronized int getActiveSensorCount() {
+        return sensors.activeCount();
+    }
+
+    @Override
+    public synchronized int getActiveSensorCount(SensorType sensorType) {
+        return sensors.activeCount(sensorType);
+    }
+
+    @Override
+    public synchronized List<Sensor> getActiveSensors() {
+        return sensors.activeSensors();
+    }
+
+    @Override
+    public synchronized AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public synchronized ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    @Override
+    public AlarmStatus pendingAlarmStatus(Sensor sensor, ArmingStatus armingStatus) {
+        return AlarmStatus.PENDING_ALARM;
+    }
+
+    @Override
+    public AlarmStatus alarmStatus(ArmingStatus armingStatus, Sensor sensor, AlarmStatus alarmStatus) {
+        return AlarmStatus.ALARM;
+    }
+
+    @Override
+    public AlarmStatus noAlarmStatus(AlarmStatus alarmStatus, Set<Sensor> sensors) {
+        return AlarmStatus.NO_ALARM;
+    }
+
+    @Override
+    public AlarmStatus sensorAlreadyActivated(Sensor sensor, boolean wishToActivate, AlarmStatus alarmStatus) {
+        return AlarmStatus.ALARM;
+    }
+
+    @Override
+    public AlarmStatus catDetectedAlarmStatus(boolean isThereACat) {
+        return AlarmStatus.ALARM;
+    }
+
+    @Override
+    public AlarmStatus noCatDetected(boolean isThereACat, Set<Sensor> sensors) {
+        return AlarmStatus.NO_ALARM;
+    }
+
+    @Override
+    public AlarmStatus noAlarm(ArmingStatus armingStatus) {
+        return AlarmStatus.NO_ALARM;
+    }
+
+    @Override
+    public Set<Sensor> resetSensors(ArmingStatus armingStatus, Set<Sensor> sensors) {
+        return sensors;
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,131 @@
+package catpoint.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Read-only sensor snapshot in a compact binary format that is memory-mapped rather than parsed.
+ * Opening a snapshot only reads its header; sensors are decoded one at a time on request.
+ *
+ * Layout: a header (magic, stamp, sensor count, name table offset), one fixed-width record per
+ * sensor (UUID, type ordinal, active flag, name length, name offset) and a table of UTF-8 names.
+ */
+public class MappedSensorSnapshot {
+
+    private static final int MAGIC = 0xCA7902;
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+    private static final int RECORD_BYTES = 2 * Long.BYTES + 1 + 1 + Short.BYTES + Integer.BYTES;
+
+    private final ByteBuffer buffer;
+    private final long stamp;
+    private final int size;
+    private final int namesOffset;
+
+    private MappedSensorSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if(buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a sensor snapshot");
+        }
+        stamp = buffer.getLong(Integer.BYTES);
+        size = buffer.getInt(Integer.BYTES + Long.BYTES);
+        namesOffset = buffer.getInt(Integer.BYTES + Long.BYTES + Integer.BYTES);
+        if(size < 0 || namesOffset != HEADER_BYTES + size * RECORD_BYTES || namesOffset > buffer.limit()) {
+            throw new IOException("Truncated sensor snapshot");
+        }
+    }
+
+    /**
+     * Maps an existing snapshot file. The file stays mapped until the snapshot is garbage collected.
+     */
+    public static MappedSensorSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedSensorSnapshot(mapped);
+        }
+    }
+
+    /**
+     * Writes the sensors to a new snapshot, replacing any existing file atomically.
+     * @param stamp Caller supplied value used to tell whether the snapshot is still current
+     */
+    public static void write(Path file, Collection<Sensor> sensors, long stamp) throws IOException {
+        List<byte[]> names = new ArrayList<>(sensors.size());
+        int namesLength = 0;
+        for(Sensor sensor : sensors) {
+            byte[] name = sensor.getName().getBytes(StandardCharsets.UTF_8);
+            if(name.length > 0xFFFF) {
+                throw new IOException("Sensor name too long for snapshot: " + sensor.getSensorId());
+            }
+            names.add(name);
+            namesLength += name.length;
+        }
+
+        int namesOffset = HEADER_BYTES + sensors.size() * RECORD_BYTES;
+        ByteBuffer out = ByteBuffer.allocate(namesOffset + namesLength);
+        out.putInt(MAGIC).putLong(stamp).putInt(sensors.size()).putInt(namesOffset);
+        int nameCursor = namesOffset;
+        int i = 0;
+        for(Sensor sensor : sensors) {
+            byte[] name = names.get(i++);
+            out.putLong(sensor.getSensorId().getMostSignificantBits())
+                    .putLong(sensor.getSensorId().getLeastSignificantBits())
+                    .put((byte) sensor.getSensorType().ordinal())
+                    .put((byte) (sensor.getActive() ? 1 : 0))
+                    .putShort((short) name.length)
+                    .putInt(nameCursor);
+            nameCursor += name.length;
+        }
+        names.forEach(out::put);
+        out.flip();
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public long getStamp() {
+        return stamp;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Decodes the sensor stored at the given position. Each call returns a new Sensor.
+     */
+    public Sensor get(int index) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int record = HEADER_BYTES + index * RECORD_BYTES;
+        Sensor sensor = new Sensor();
+        sensor.setSensorId(new UUID(buffer.getLong(record), buffer.getLong(record + Long.BYTES)));
+        sensor.setSensorType(SensorType.values()[buffer.get(record + 2 * Long.BYTES)]);
+        sensor.setActive(buffer.get(record + 2 * Long.BYTES + 1) != 0);
+
+        int nameLength = Short.toUnsignedInt(buffer.getShort(record + 2 * Long.BYTES + 2));
+        int nameOffset = buffer.getInt(record + 2 * Long.BYTES + 2 + Short.BYTES);
+        byte[] name = new byte[nameLength];
+        buffer.duplicate().position(nameOffset).get(name);
+        sensor.setName(new String(name, StandardCharsets.UTF_8));
+        return sensor;
+    }
+}
@@ -0,0 +1,172 @@
+package catpoint.data;
+
+import metrics.Counter;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Decorator that records how long each write to the underlying repository takes, plus the full
+ * sensor load. Metrics are named "repository.*" in the given registry. Everything else is passed
+ * straight through.
+ */
+public class MeteredSecurityRepository implements SecurityRepository {
+
+    private final SecurityRepository delegate;
+    private final LatencyHistogram addSensorLatency;
+    private final LatencyHistogram removeSensorLatency;
+    private final LatencyHistogram updateSensorLatency;
+    private final LatencyHistogram updateSensorsLatency;
+    private final LatencyHistogram setAlarmStatusLatency;
+    private final LatencyHistogram setArmingStatusLatency;
+    private final LatencyHistogram flushLatency;
+    private final LatencyHistogram getSensorsLatency;
+    private final Counter sensorsWritten;
+
+    public MeteredSecurityRepository(SecurityRepository delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        this.addSensorLatency = registry.histogram("repository.addSensor");
+        this.removeSensorLatency = registry.histogram("repository.removeSensor");
+        this.updateSensorLatency = registry.histogram("repository.updateSensor");
+        this.updateSensorsLatency = registry.histogram("repository.updateSensors");
+        this.setAlarmStatusLatency = registry.histogram("repository.setAlarmStatus");
+        this.setArmingStatusLatency = registry.histogram("repository.setArmingStatus");
+        this.flushLatency = registry.histogram("repository.flush");
+        this.getSensorsLatency = registry.histogram("repository.getSensors");
+        this.sensorsWritten = registry.counter("repository.sensorsWritten");
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        long start = System.nanoTime();
+        delegate.addSensor(sensor);
+        addSensorLatency.recordSince(start);
+        sensorsWritten.increment();
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        long start = System.nanoTime();
+        delegate.removeSensor(sensor);
+        removeSensorLatency.recordSince(start);
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        long start = System.nanoTime();
+        delegate.updateSensor(sensor);
+        updateSensorLatency.recordSince(start);
+        sensorsWritten.increment();
+    }
+
+    @Override
+    public void updateSensors(Collection<Sensor> sensors) {
+        long start = System.nanoTime();
+        delegate.updateSensors(sensors);
+        updateSensorsLatency.recordSince(start);
+        sensorsWritten.add(sensors.size());
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        long start = System.nanoTime();
+        delegate.setAlarmStatus(alarmStatus);
+        setAlarmStatusLatency.recordSince(start);
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        long start = System.nanoTime();
+        delegate.setArmingStatus(armingStatus);
+        setArmingStatusLatency.recordSince(start);
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        long start = System.nanoTime();
+        Set<Sensor> sensors = delegate.getSensors();
+        getSensorsLatency.recordSince(start);
+        return sensors;
+    }
+
+    @Override
+    public Sensor findSensor(UUID sensorId) {
+        return delegate.findSensor(sensorId);
+    }
+
+    @Override
+    public int getActiveSensorCount() {
+        return delegate.getActiveSensorCount();
+    }
+
+    @Override
+    public int getActiveSensorCount(SensorType sensorType) {
+        return delegate.getActiveSensorCount(sensorType);
+    }
+
+    @Override
+    public List<Sensor> getActiveSensors() {
+        return delegate.getActiveSensors();
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return delegate.getAlarmStatus();
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return delegate.getArmingStatus();
+    }
+
+    @Override
+    public void flush() {
+        long start = System.nanoTime();
+        delegate.flush();
+        flushLatency.recordSince(start);
+    }
+
+    @Override
+    public AlarmStatus pendingAlarmStatus(Sensor sensor, ArmingStatus armingStatus) {
+        return delegate.pendingAlarmStatus(sensor, armingStatus);
+    }
+
+    @Override
+    public AlarmStatus alarmStatus(ArmingStatus armingStatus, Sensor sensor, AlarmStatus alarmStatus) {
+        return delegate.alarmStatus(armingStatus, sensor, alarmStatus);
+    }
+
+    @Override
+    public AlarmStatus noAlarmStatus(AlarmStatus alarmStatus, Set<Sensor> sensors) {
+        return delegate.noAlarmStatus(alarmStatus, sensors);
+    }
+
+    @Override
+    public AlarmStatus sensorAlreadyActivated(Sensor sensor, boolean wishToActivate, AlarmStatus alarmStatus) {
+        return delegate.sensorAlreadyActivated(sensor, wishToActivate, alarmStatus);
+    }
+
+    @Override
+    public AlarmStatus catDetectedAlarmStatus(boolean isThereACat) {
+        return delegate.catDetectedAlarmStatus(isThereACat);
+    }
+
+    @Override
+    public AlarmStatus noCatDetected(boolean isThereACat, Set<Sensor> sensors) {
+        return delegate.noCatDetected(isThereACat, sensors);
+    }
+
+    @Override
+    public AlarmStatus noAlarm(ArmingStatus armingStatus) {
+        return delegate.noAlarm(armingStatus);
+    }
+
+    @Override
+    public Set<Sensor> resetSensors(ArmingStatus armingStatus, Set<Sensor> sensors) {
+        return delegate.resetSensors(armingStatus, sensors);
+    }
+}
@@ -4,19 +4,37 @@ import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 import service.ImageServiceInterface;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
 
 /**
  * Fake repository implementation for demo purposes. Stores state information in local
  * memory and writes it to user preferences between app loads. This implementation is
  * intentionally a little hard to use in unit tests, so watch out!
+ *
+ * By default each sensor is written as its own record in a child preferences node, so toggling
+ * one sensor does not re-serialize the others. Sensors saved by older versions as a single
+ * JSON blob are migrated to that layout on first load.
+ *
+ * Optionally, {@link #saveSnapshot()} writes the sensors to a {@link MappedSensorSnapshot}. The
+ * next launch maps that file instead of parsing JSON, as long as no sensor changed since it was
+ * written. Preferences remain the source of truth; the snapshot is only a startup cache.
  */
 public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository{
 
-    private Set<Sensor> sensors;
+    private SensorIndex sensors;
     private AlarmStatus alarmStatus;
     private ArmingStatus armingStatus;
 
@@ -24,70 +42,241 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
     private static final String SENSORS = "SENSORS";
     private static final String ALARM_STATUS = "ALARM_STATUS";
     private static final String ARMING_STATUS = "ARMING_STATUS";
+    private static final String SENSOR_NODE = "sensors";
+    private static final String SNAPSHOT_STAMP = "SNAPSHOT_STAMP";
+
+    private static final Path DEFAULT_SNAPSHOT_FILE = Paths.get(System.getProperty("user.home"), ".catpoint", "sensors.snapshot");
 
-    private static final Preferences prefs = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
     private static final Gson gson = new Gson(); //used to serialize objects into JSON
 
+    private final Preferences prefs;
+    private final Preferences sensorPrefs; //one record per sensor id, used in PER_SENSOR mode
+    private final SensorStorageMode storageMode;
+    private final Path snapshotFile;
+    private boolean snapshotCurrent; //true while the snapshot file matches the stored sensors
+
     public PretendDatabaseSecurityRepositoryImpl() {
+        this(Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class), SensorStorageMode.PER_SENSOR, DEFAULT_SNAPSHOT_FILE);
+    }
+
+    /**
+     * Creates a repository backed by the given preferences node, without a startup snapshot.
+     * @param prefs Node to load state from and write state to
+     * @param storageMode How the sensor list is laid out in the node
+     */
+    public PretendDatabaseSecurityRepositoryImpl(Preferences prefs, SensorStorageMode storageMode) {
+        this(prefs, storageMode, null);
+    }
+
+    /**
+     * Creates a repository backed by the given preferences node.
+     * @param prefs Node to load state from and write state to
+     * @param storageMode How the sensor list is laid out in the node
+     * @param snapshotFile Location of the startup snapshot, or null to always load from preferences
+     */
+    public PretendDatabaseSecurityRepositoryImpl(Preferences prefs, SensorStorageMode storageMode, Path snapshotFile) {
+        this.prefs = prefs;
+        this.sensorPrefs = prefs.node(SENSOR_NODE);
+        this.storageMode = storageMode;
+        this.snapshotFile = snapshotFile;
+
         //load system state from prefs, or else default
         alarmStatus = AlarmStatus.valueOf(prefs.get(ALARM_STATUS, AlarmStatus.NO_ALARM.toString()));
         armingStatus = ArmingStatus.valueOf(prefs.get(ARMING_STATUS, ArmingStatus.DISARMED.toString()));
 
+        Set<Sensor> loaded = loadSnapshot();
+        if(loaded != null) {
+            snapshotCurrent = true;
+        } else if(storageMode == SensorStorageMode.PER_SENSOR) {
+            loaded = loadSensorRecords();
+        } else {
+            loaded = loadSensorBlob();
+        }
+        sensors = new SensorIndex(loaded);
+    }
+
+    /**
+     * Maps the snapshot file if it was written after the last sensor change.
+     * @return A lazily decoded view of the snapshot, or null if there is no usable snapshot
+     */
+    private Set<Sensor> loadSnapshot() {
+        String stamp = prefs.get(SNAPSHOT_STAMP, null);
+        if(snapshotFile == null || stamp == null || !Files.exists(snapshotFile)) {
+            return null;
+        }
+        try {
+            MappedSensorSnapshot snapshot = MappedSensorSnapshot.open(snapshotFile);
+            return snapshot.getStamp() == Long.parseLong(stamp) ? new SnapshotSensorSet(snapshot) : null;
+        } catch (IOException | NumberFormatException exception) {
+            return null; //fall back to preferences
+        }
+    }
+
+    /**
+     * Writes the current sensors to the snapshot file so the next launch can skip parsing them.
+     * Does nothing if no snapshot file is configured or the snapshot is already current.
+     */
+    public synchronized void saveSnapshot() {
+        if(snapshotFile == null || snapshotCurrent) {
+            return;
+        }
+        long stamp = ThreadLocalRandom.current().nextLong();
+        try {
+            MappedSensorSnapshot.write(snapshotFile, sensors.sorted(), stamp);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to write sensor snapshot", ioe);
+        }
+        prefs.put(SNAPSHOT_STAMP, Long.toString(stamp));
+        snapshotCurrent = true;
+    }
+
+    /**
+     * Reads the legacy format, where the whole sensor set is a single JSON value.
+     */
+    private Set<Sensor> loadSensorBlob() {
         //we've serialized our sensor objects for storage, which should be a good warning sign that
         // this is likely an impractical solution for a real system
         String sensorString = prefs.get(SENSORS, null);
         if(sensorString == null) {
-            sensors = new TreeSet<>();
+            return new TreeSet<>();
+        }
+        Type type = new TypeToken<Set<Sensor>>() {
+        }.getType();
+        return new TreeSet<>(gson.<Set<Sensor>>fromJson(sensorString, type));
+    }
+
+    /**
+     * Reads one JSON record per sensor. If there are none yet but a legacy blob exists,
+     * the blob is split into records and removed.
+     */
+    private Set<Sensor> loadSensorRecords() {
+        Set<Sensor> loaded = new TreeSet<>();
+        try {
+            for(String key : sensorPrefs.keys()) {
+                String sensorString = sensorPrefs.get(key, null);
+                if(sensorString != null) {
+                    loaded.add(gson.fromJson(sensorString, Sensor.class));
+                }
+            }
+        } catch (BackingStoreException exception) {
+            throw new IllegalStateException("Unable to read sensors from preferences", exception);
+        }
+
+        if(loaded.isEmpty() && prefs.get(SENSORS, null) != null) {
+            loaded.addAll(loadSensorBlob());
+            loaded.forEach(this::writeSensorRecord);
+            prefs.remove(SENSORS);
+        }
+        return loaded;
+    }
+
+    private void writeSensorRecord(Sensor sensor) {
+        sensorPrefs.put(sensor.getSensorId().toString(), gson.toJson(sensor));
+    }
+
+    /**
+     * Persists a change to one sensor. In PER_SENSOR mode only that sensor's record is written.
+     * @param sensor The sensor that changed
+     * @param removed True if the sensor was removed from the system
+     */
+    private void persistSensor(Sensor sensor, boolean removed) {
+        invalidateSnapshot();
+        if(storageMode == SensorStorageMode.SINGLE_BLOB) {
+            prefs.put(SENSORS, gson.toJson(sensors.sorted()));
+        } else if(removed) {
+            sensorPrefs.remove(sensor.getSensorId().toString());
         } else {
-            Type type = new TypeToken<Set<Sensor>>() {
-            }.getType();
-            sensors = gson.fromJson(sensorString, type);
+            writeSensorRecord(sensor);
+        }
+    }
+
+    private void invalidateSnapshot() {
+        if(snapshotCurrent) {
+            prefs.remove(SNAPSHOT_STAMP);
+            snapshotCurrent = false;
         }
     }
 
     @Override
-    public void addSensor(Sensor sensor) {
-        sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+    public synchronized void addSensor(Sensor sensor) {
+        sensors.put(sensor);
+        persistSensor(sensor, false);
     }
 
     @Override
-    public void removeSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+    public synchronized void removeSensor(Sensor sensor) {
+        sensors.remove(sensor.getSensorId());
+        persistSensor(sensor, true);
     }
 
     @Override
-    public void updateSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+    public synchronized void updateSensor(Sensor sensor) {
+        sensors.put(sensor);
+        persistSensor(sensor, false);
     }
 
+    /**
+     * Writes the changed sensors with a single blob write in SINGLE_BLOB mode, or one record per
+     * changed sensor in PER_SENSOR mode.
+     */
     @Override
-    public void setAlarmStatus(AlarmStatus alarmStatus) {
+    public synchronized void updateSensors(Collection<Sensor> changed) {
+        if(changed.isEmpty()) {
+            return;
+        }
+        changed.forEach(sensors::put);
+        invalidateSnapshot();
+        if(storageMode == SensorStorageMode.SINGLE_BLOB) {
+            prefs.put(SENSORS, gson.toJson(sensors.sorted()));
+        } else {
+            changed.forEach(this::writeSensorRecord);
+        }
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
         this.alarmStatus = alarmStatus;
         prefs.put(ALARM_STATUS, this.alarmStatus.toString());
     }
 
     @Override
-    public void setArmingStatus(ArmingStatus armingStatus) {
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
         this.armingStatus = armingStatus;
         prefs.put(ARMING_STATUS, this.armingStatus.toString());
     }
 
     @Override
-    public Set<Sensor> getSensors() {
-        return sensors;
+    public synchronized Set<Sensor> getSensors() {
+        return sensors.sorted();
+    }
+
+    @Override
+    public synchronized Sensor findSensor(UUID sensorId) {
+        return sensors.get(sensorId);
+    }
+
+    @Override
+    public synchronized int getActiveSensorCount() {
+        return sensors.activeCount();
+    }
+
+    @Override
+    public synchronized int getActiveSensorCount(SensorType sensorType) {
+        return sensors.activeCount(sensorType);
+    }
+
+    @Override
+    public synchronized List<Sensor> getActiveSensors() {
+        return sensors.activeSensors();
     }
 
     @Override
-    public AlarmStatus getAlarmStatus() {
+    public synchronized AlarmStatus getAlarmStatus() {
         return alarmStatus;
     }
 
     @Override
-    public ArmingStatus getArmingStatus() {
+    public synchronized ArmingStatus getArmingStatus() {
         return armingStatus;
     }
 
@@ -118,12 +307,12 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
 
 
     @Override
-    public AlarmStatus catDetectedAlarmStatus(Boolean isThereACat) {
+    public AlarmStatus catDetectedAlarmStatus(boolean isThereACat) {
         return AlarmStatus.ALARM;
     }
 
     @Override
-    public AlarmStatus noCatDetected(Boolean isThereACat, Set<Sensor> sensors) {
+    public AlarmStatus noCatDetected(boolean isThereACat, Set<Sensor> sensors) {
         return AlarmStatus.NO_ALARM;
     }
 
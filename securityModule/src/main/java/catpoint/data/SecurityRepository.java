@@ -2,8 +2,11 @@ package catpoint.data;
 
 import service.ImageServiceInterface;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * Interface showing the methods our security repository will need to support
@@ -12,17 +15,59 @@ public interface SecurityRepository {
     void addSensor(Sensor sensor);
     void removeSensor(Sensor sensor);
     void updateSensor(Sensor sensor);
+
+    /**
+     * Updates several sensors at once. Implementations persist the whole batch in one write where
+     * they can, rather than once per sensor.
+     */
+    default void updateSensors(Collection<Sensor> sensors) {
+        sensors.forEach(this::updateSensor);
+    }
+
     void setAlarmStatus(AlarmStatus alarmStatus);
     void setArmingStatus(ArmingStatus armingStatus);
     Set<Sensor> getSensors();
+
+    /**
+     * @return The sensor with the given id, or null if there is none
+     */
+    default Sensor findSensor(UUID sensorId) {
+        return getSensors().stream().filter(sensor -> sensor.getSensorId().equals(sensorId)).findFirst().orElse(null);
+    }
+
+    /**
+     * @return Number of sensors that were active when last added or updated
+     */
+    default int getActiveSensorCount() {
+        return (int) getSensors().stream().filter(Sensor::getActive).count();
+    }
+
+    default int getActiveSensorCount(SensorType sensorType) {
+        return (int) getSensors().stream().filter(sensor -> sensor.getSensorType() == sensorType && sensor.getActive()).count();
+    }
+
+    /**
+     * @return The sensors that were active when last added or updated
+     */
+    default List<Sensor> getActiveSensors() {
+        return getSensors().stream().filter(Sensor::getActive).collect(Collectors.toList());
+    }
+
     AlarmStatus getAlarmStatus();
     ArmingStatus getArmingStatus();
+
+    /**
+     * Makes every change made so far durable. Repositories that write synchronously have nothing to do.
+     */
+    default void flush() {
+    }
+
     AlarmStatus pendingAlarmStatus(Sensor sensor, ArmingStatus armingStatus);
     AlarmStatus alarmStatus(ArmingStatus armingStatus, Sensor sensor, AlarmStatus alarmStatus);
     AlarmStatus noAlarmStatus(AlarmStatus alarmStatus, Set<Sensor> sensors);
     AlarmStatus sensorAlreadyActivated(Sensor sensor, boolean wishToActivate, AlarmStatus alarmStatus);
-    AlarmStatus catDetectedAlarmStatus(Boolean isThereACat);
-    AlarmStatus noCatDetected(Boolean isThereACat, Set<Sensor> sensors);
+    AlarmStatus catDetectedAlarmStatus(boolean isThereACat);
+    AlarmStatus noCatDetected(boolean isThereACat, Set<Sensor> sensors);
     AlarmStatus noAlarm(ArmingStatus armingStatus);
     Set<Sensor> resetSensors(ArmingStatus armingStatus, Set<Sensor> sensors);
 
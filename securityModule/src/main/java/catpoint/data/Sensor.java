@@ -13,7 +13,7 @@ import java.util.UUID;
 public class Sensor implements Comparable<Sensor> {
     private UUID sensorId;
     private String name;
-    private Boolean active;
+    private boolean active;
     private SensorType sensorType;
 
     public Sensor(){}
@@ -22,7 +22,7 @@ public class Sensor implements Comparable<Sensor> {
         this.name = name;
         this.sensorType = sensorType;
         this.sensorId = UUID.randomUUID();
-        this.active = Boolean.FALSE;
+        this.active = false;
     }
 
     @Override
@@ -46,11 +46,11 @@ public class Sensor implements Comparable<Sensor> {
         this.name = name;
     }
 
-    public Boolean getActive() {
+    public boolean getActive() {
         return active;
     }
 
-    public void setActive(Boolean active) {
+    public void setActive(boolean active) {
         this.active = active;
     }
 
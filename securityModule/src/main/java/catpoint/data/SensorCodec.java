@@ -0,0 +1,41 @@
+package catpoint.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Binary encoding of sensors shared by the file based repositories. Enum values are stored
+ * by ordinal, so new constants must only ever be appended.
+ */
+final class SensorCodec {
+
+    private SensorCodec() {
+    }
+
+    static void writeSensorId(DataOutput out, UUID sensorId) throws IOException {
+        out.writeLong(sensorId.getMostSignificantBits());
+        out.writeLong(sensorId.getLeastSignificantBits());
+    }
+
+    static UUID readSensorId(DataInput in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    static void writeSensor(DataOutput out, Sensor sensor) throws IOException {
+        writeSensorId(out, sensor.getSensorId());
+        out.writeByte(sensor.getSensorType().ordinal());
+        out.writeBoolean(sensor.getActive());
+        out.writeUTF(sensor.getName());
+    }
+
+    static Sensor readSensor(DataInput in) throws IOException {
+        Sensor sensor = new Sensor();
+        sensor.setSensorId(readSensorId(in));
+        sensor.setSensorType(SensorType.values()[in.readUnsignedByte()]);
+        sensor.setActive(in.readBoolean());
+        sensor.setName(in.readUTF());
+        return sensor;
+    }
+}
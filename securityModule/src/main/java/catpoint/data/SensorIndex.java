@@ -0,0 +1,195 @@
+package catpoint.data;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * The sensors held by a repository, indexed by id. Lookups and updates are hash operations;
+ * the display ordering used by getSensors is kept as a cached, read-only sorted copy that is only
+ * rebuilt after a sensor is added, removed or changes its name or type. Activation changes don't
+ * affect the ordering and leave the cached copy alone.
+ *
+ * Activation flags and types are mirrored into a {@link SensorStateStore} as of each sensor's last
+ * put, which answers active counts without a scan and lists active sensors from a bitmap.
+ *
+ * Not thread safe; repositories guard it with their own lock.
+ */
+class SensorIndex {
+
+    private Map<UUID, Entry> entries; //null until first needed, see loaded
+    private Set<Sensor> loaded; //sensors handed to the constructor, indexed lazily
+    private Set<Sensor> sortedView; //null when it must be rebuilt
+    private final SensorStateStore states = new SensorStateStore();
+    private Sensor[] sensorsBySlot = new Sensor[16];
+
+    SensorIndex() {
+        entries = new HashMap<>();
+        sortedView = Collections.emptySet();
+    }
+
+    /**
+     * Starts from already loaded sensors without touching them, so a lazily decoded set stays
+     * undecoded until a sensor is looked up or changed.
+     * @param loaded Sensors in display order
+     */
+    SensorIndex(Set<Sensor> loaded) {
+        this.loaded = loaded;
+        sortedView = Collections.unmodifiableSet(loaded);
+    }
+
+    private Map<UUID, Entry> entries() {
+        if(entries == null) {
+            entries = new HashMap<>();
+            loaded.forEach(this::add);
+            loaded = null;
+        }
+        return entries;
+    }
+
+    Sensor get(UUID sensorId) {
+        Entry entry = entries().get(sensorId);
+        return entry == null ? null : entry.sensor;
+    }
+
+    /**
+     * Adds a sensor or replaces the one with the same id.
+     */
+    void put(Sensor sensor) {
+        Entry entry = entries().get(sensor.getSensorId());
+        if(entry == null) {
+            add(sensor);
+            sortedView = null;
+            return;
+        }
+        if(entry.sensor != sensor || entry.sortsDifferentlyFrom(sensor)) {
+            sortedView = null;
+        }
+        if(entry.sensorType != sensor.getSensorType()) {
+            states.setType(entry.slot, sensor.getSensorType());
+        }
+        entry.update(sensor);
+        sensorsBySlot[entry.slot] = sensor;
+        states.setActive(entry.slot, sensor.getActive());
+    }
+
+    private void add(Sensor sensor) {
+        int slot = states.allocate(sensor.getSensorType());
+        if(slot == sensorsBySlot.length) {
+            sensorsBySlot = Arrays.copyOf(sensorsBySlot, slot * 2);
+        }
+        sensorsBySlot[slot] = sensor;
+        states.setActive(slot, sensor.getActive());
+        entries.put(sensor.getSensorId(), new Entry(sensor, slot));
+    }
+
+    void remove(UUID sensorId) {
+        Entry removed = entries().remove(sensorId);
+        if(removed != null) {
+            states.release(removed.slot);
+            sensorsBySlot[removed.slot] = null;
+            sortedView = null;
+        }
+    }
+
+    int activeCount() {
+        entries();
+        return states.activeCount();
+    }
+
+    int activeCount(SensorType sensorType) {
+        entries();
+        return states.activeCount(sensorType);
+    }
+
+    /**
+     * @return The sensors that were active when last put, in no particular order
+     */
+    List<Sensor> activeSensors() {
+        entries();
+        List<Sensor> active = new ArrayList<>(states.activeCount());
+        states.forEachActive(slot -> active.add(sensorsBySlot[slot]));
+        return active;
+    }
+
+    int size() {
+        return entries == null ? loaded.size() : entries.size();
+    }
+
+    /**
+     * @return The sensors in no particular order
+     */
+    Collection<Sensor> values() {
+        if(entries == null) {
+            return sortedView;
+        }
+        Collection<Entry> values = entries.values();
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Sensor> iterator() {
+                Iterator<Entry> iterator = values.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Sensor next() {
+                        return iterator.next().sensor;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return values.size();
+            }
+        };
+    }
+
+    /**
+     * @return A read-only set of the sensors in display order. The set is not updated by later changes.
+     */
+    Set<Sensor> sorted() {
+        if(sortedView == null) {
+            Set<Sensor> sorted = new TreeSet<>();
+            entries().values().forEach(entry -> sorted.add(entry.sensor));
+            sortedView = Collections.unmodifiableSet(sorted);
+        }
+        return sortedView;
+    }
+
+    private static class Entry {
+        private final int slot;
+        private Sensor sensor;
+        //what the sensor sorted by when it was last put, it may be changed in place before the next put
+        private String name;
+        private SensorType sensorType;
+
+        private Entry(Sensor sensor, int slot) {
+            this.slot = slot;
+            update(sensor);
+        }
+
+        private void update(Sensor sensor) {
+            this.sensor = sensor;
+            this.name = sensor.getName();
+            this.sensorType = sensor.getSensorType();
+        }
+
+        private boolean sortsDifferentlyFrom(Sensor sensor) {
+            return !Objects.equals(name, sensor.getName()) || sensorType != sensor.getSensorType();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package catpoint.data;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Activation flags and types of a set of sensors, stored by a dense slot number instead of in
+ * the sensor objects. Flags live in a long[] bitmap and types in a byte[] of ordinals, so counting
+ * and walking active sensors touches a few contiguous arrays and allocates nothing.
+ *
+ * Slots of removed sensors are reused. Not thread safe.
+ */
+class SensorStateStore {
+
+    private static final byte NO_TYPE = -1;
+    private static final int INITIAL_SLOTS = 64;
+
+    private long[] activeBits = new long[INITIAL_SLOTS / Long.SIZE];
+    private byte[] types = new byte[INITIAL_SLOTS];
+    private int[] freeSlots = new int[8];
+    private int freeCount;
+    private int slotCount; //slots handed out so far, including freed ones
+
+    private int activeCount;
+    private final int[] activeCountByType = new int[SensorType.values().length];
+
+    /**
+     * @return A slot for a new sensor, initially inactive
+     */
+    int allocate(SensorType sensorType) {
+        int slot;
+        if(freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = slotCount++;
+            if(slot == types.length) {
+                types = Arrays.copyOf(types, types.length * 2);
+                activeBits = Arrays.copyOf(activeBits, types.length / Long.SIZE);
+            }
+        }
+        types[slot] = sensorType == null ? NO_TYPE : (byte) sensorType.ordinal();
+        return slot;
+    }
+
+    void release(int slot) {
+        setActive(slot, false);
+        types[slot] = NO_TYPE;
+        if(freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    boolean isActive(int slot) {
+        return (activeBits[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    void setActive(int slot, boolean active) {
+        if(active == isActive(slot)) {
+            return;
+        }
+        activeBits[slot >>> 6] ^= 1L << slot;
+        int delta = active ? 1 : -1;
+        activeCount += delta;
+        if(types[slot] != NO_TYPE) {
+            activeCountByType[types[slot]] += delta;
+        }
+    }
+
+    void setType(int slot, SensorType sensorType) {
+        boolean active = isActive(slot);
+        setActive(slot, false);
+        types[slot] = sensorType == null ? NO_TYPE : (byte) sensorType.ordinal();
+        setActive(slot, active);
+    }
+
+    int activeCount() {
+        return activeCount;
+    }
+
+    int activeCount(SensorType sensorType) {
+        return activeCountByType[sensorType.ordinal()];
+    }
+
+    /**
+     * Calls the action with the slot of every active sensor, in slot order.
+     */
+    void forEachActive(IntConsumer action) {
+        for(int word = 0; word < activeBits.length; word++) {
+            long bits = activeBits[word];
+            while(bits != 0) {
+                action.accept(word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package catpoint.data;
+
+/**
+ * Describes how the sensor list is written to user preferences.
+ */
+public enum SensorStorageMode {
+    /**
+     * The whole sensor set is serialized into a single preferences value on every change.
+     * Every update costs O(n) and the value is capped at {@link java.util.prefs.Preferences#MAX_VALUE_LENGTH}.
+     */
+    SINGLE_BLOB,
+    /**
+     * Each sensor is stored as its own record keyed by sensor id, so a change only rewrites
+     * the sensor that changed.
+     */
+    PER_SENSOR
+}
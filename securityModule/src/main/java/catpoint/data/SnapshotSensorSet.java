@@ -0,0 +1,58 @@
+package catpoint.data;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Sensor set backed by a {@link MappedSensorSnapshot}. The size is answered from the snapshot
+ * header; Sensor objects are only decoded the first time the contents are actually needed,
+ * after which the set behaves like a normal TreeSet.
+ */
+class SnapshotSensorSet extends AbstractSet<Sensor> {
+
+    private MappedSensorSnapshot snapshot;
+    private Set<Sensor> sensors;
+
+    SnapshotSensorSet(MappedSensorSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    private Set<Sensor> sensors() {
+        if(sensors == null) {
+            Set<Sensor> materialized = new TreeSet<>();
+            for(int i = 0; i < snapshot.size(); i++) {
+                materialized.add(snapshot.get(i));
+            }
+            sensors = materialized;
+            snapshot = null; //release the mapping
+        }
+        return sensors;
+    }
+
+    @Override
+    public int size() {
+        return sensors == null ? snapshot.size() : sensors.size();
+    }
+
+    @Override
+    public Iterator<Sensor> iterator() {
+        return sensors().iterator();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return sensors().contains(o);
+    }
+
+    @Override
+    public boolean add(Sensor sensor) {
+        return sensors().add(sensor);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return sensors().remove(o);
+    }
+}
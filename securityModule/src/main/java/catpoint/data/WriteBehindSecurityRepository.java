@@ -0,0 +1,333 @@
+package catpoint.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository decorator that applies changes in memory and returns immediately, then writes them
+ * to the wrapped repository on a background thread. Pending changes are written every flush
+ * interval, or sooner once enough of them have piled up. Several changes to the same status or
+ * sensor between two flushes result in a single write.
+ *
+ * Call {@link #flush()} when a change must be durable before going on, and {@link #shutdown()}
+ * on exit so nothing is left unwritten.
+ */
+public class WriteBehindSecurityRepository implements SecurityRepository {
+
+    private final SecurityRepository delegate;
+    private final int dirtyThreshold;
+    private final ScheduledExecutorService flusher;
+
+    //in-memory state, guarded by this
+    private final SensorIndex sensors;
+    private AlarmStatus alarmStatus;
+    private ArmingStatus armingStatus;
+
+    //changes not yet written to the delegate, guarded by this
+    private boolean alarmStatusDirty;
+    private boolean armingStatusDirty;
+    private final Map<UUID, Sensor> dirtySensors = new LinkedHashMap<>();
+    private final Set<UUID> addedSensors = new HashSet<>();
+    private final Map<UUID, Sensor> removedSensors = new LinkedHashMap<>();
+    private int dirtyCount;
+    private boolean flushScheduled;
+
+    //serializes writes to the delegate, always taken before the monitor of this object
+    private final Object flushLock = new Object();
+
+    /**
+     * @param delegate Repository that changes are written to. It should not be changed directly while wrapped.
+     * @param flushIntervalMillis How often pending changes are written
+     * @param dirtyThreshold Number of pending changes that triggers a write before the interval is up
+     */
+    public WriteBehindSecurityRepository(SecurityRepository delegate, long flushIntervalMillis, int dirtyThreshold) {
+        if(flushIntervalMillis < 1 || dirtyThreshold < 1) {
+            throw new IllegalArgumentException("Flush interval and dirty threshold must be positive");
+        }
+        this.delegate = delegate;
+        this.dirtyThreshold = dirtyThreshold;
+        this.sensors = new SensorIndex(delegate.getSensors());
+        this.alarmStatus = delegate.getAlarmStatus();
+        this.armingStatus = delegate.getArmingStatus();
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "write-behind-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::backgroundFlush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes every pending change to the wrapped repository and flushes it in turn.
+     * Returns once the changes made before the call have been written.
+     */
+    @Override
+    public void flush() {
+        synchronized (flushLock) {
+            PendingChanges changes;
+            synchronized (this) {
+                changes = takePendingChanges();
+            }
+            try {
+                changes.writeTo(delegate);
+                delegate.flush();
+            } catch (RuntimeException exception) {
+                synchronized (this) {
+                    restore(changes);
+                }
+                throw exception;
+            }
+        }
+    }
+
+    /**
+     * Stops the background thread and writes everything still pending.
+     */
+    public void shutdown() {
+        flusher.shutdown();
+        flush();
+    }
+
+    /**
+     * @return Number of changes waiting to be written
+     */
+    public synchronized int getPendingCount() {
+        return dirtyCount;
+    }
+
+    private void backgroundFlush() {
+        synchronized (this) {
+            flushScheduled = false;
+        }
+        try {
+            flush();
+        } catch (RuntimeException exception) {
+            //the changes stay pending and are retried on the next run
+            Thread current = Thread.currentThread();
+            current.getUncaughtExceptionHandler().uncaughtException(current, exception);
+        }
+    }
+
+    /**
+     * Records one more pending change. Must be called while holding this object's monitor.
+     */
+    private void markDirty() {
+        dirtyCount++;
+        if(dirtyCount >= dirtyThreshold && !flushScheduled) {
+            flushScheduled = true;
+            try {
+                flusher.execute(this::backgroundFlush);
+            } catch (RejectedExecutionException exception) {
+                flushScheduled = false; //shut down, the final flush will pick the changes up
+            }
+        }
+    }
+
+    private PendingChanges takePendingChanges() {
+        PendingChanges changes = new PendingChanges();
+        if(alarmStatusDirty) {
+            changes.alarmStatus = alarmStatus;
+        }
+        if(armingStatusDirty) {
+            changes.armingStatus = armingStatus;
+        }
+        changes.removed.addAll(removedSensors.values());
+        dirtySensors.forEach((sensorId, sensor) ->
+                (addedSensors.contains(sensorId) ? changes.added : changes.updated).add(sensor));
+        alarmStatusDirty = false;
+        armingStatusDirty = false;
+        dirtySensors.clear();
+        addedSensors.clear();
+        removedSensors.clear();
+        dirtyCount = 0;
+        return changes;
+    }
+
+    /**
+     * Puts back changes that failed to write, unless they were superseded in the meantime.
+     */
+    private void restore(PendingChanges changes) {
+        alarmStatusDirty |= changes.alarmStatus != null;
+        armingStatusDirty |= changes.armingStatus != null;
+        for(Sensor sensor : changes.removed) {
+            if(!dirtySensors.containsKey(sensor.getSensorId())) {
+                removedSensors.putIfAbsent(sensor.getSensorId(), sensor);
+            }
+        }
+        for(Sensor sensor : changes.added) {
+            if(!removedSensors.containsKey(sensor.getSensorId())) {
+                dirtySensors.putIfAbsent(sensor.getSensorId(), sensor);
+                addedSensors.add(sensor.getSensorId());
+            }
+        }
+        for(Sensor sensor : changes.updated) {
+            if(!removedSensors.containsKey(sensor.getSensorId())) {
+                dirtySensors.putIfAbsent(sensor.getSensorId(), sensor);
+            }
+        }
+        dirtyCount += changes.size();
+    }
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        sensors.put(sensor);
+        UUID sensorId = sensor.getSensorId();
+        if(removedSensors.remove(sensorId) == null) {
+            addedSensors.add(sensorId); //the delegate has never seen it
+        }
+        dirtySensors.put(sensorId, sensor);
+        markDirty();
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        sensors.remove(sensor.getSensorId());
+        UUID sensorId = sensor.getSensorId();
+        dirtySensors.remove(sensorId);
+        if(!addedSensors.remove(sensorId)) {
+            removedSensors.put(sensorId, sensor);
+        }
+        markDirty();
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        sensors.put(sensor);
+        dirtySensors.put(sensor.getSensorId(), sensor);
+        markDirty();
+    }
+
+    @Override
+    public synchronized void updateSensors(Collection<Sensor> changed) {
+        changed.forEach(this::updateSensor);
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+        alarmStatusDirty = true;
+        markDirty();
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+        armingStatusDirty = true;
+        markDirty();
+    }
+
+    @Override
+    public synchronized Set<Sensor> getSensors() {
+        return sensors.sorted();
+    }
+
+    @Override
+    public synchronized Sensor findSensor(UUID sensorId) {
+        return sensors.get(sensorId);
+    }
+
+    @Override
+    public synchronized int getActiveSensorCount() {
+        return sensors.activeCount();
+    }
+
+    @Override
+    public synchronized int getActiveSensorCount(SensorType sensorType) {
+        return sensors.activeCount(sensorType);
+    }
+
+    @Override
+    public synchronized List<Sensor> getActiveSensors() {
+        return sensors.activeSensors();
+    }
+
+    @Override
+    public synchronized AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public synchronized ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    @Override
+    public AlarmStatus pendingAlarmStatus(Sensor sensor, ArmingStatus armingStatus) {
+        return delegate.pendingAlarmStatus(sensor, armingStatus);
+    }
+
+    @Override
+    public AlarmStatus alarmStatus(ArmingStatus armingStatus, Sensor sensor, AlarmStatus alarmStatus) {
+        return delegate.alarmStatus(armingStatus, sensor, alarmStatus);
+    }
+
+    @Override
+    public AlarmStatus noAlarmStatus(AlarmStatus alarmStatus, Set<Sensor> sensors) {
+        return delegate.noAlarmStatus(alarmStatus, sensors);
+    }
+
+    @Override
+    public AlarmStatus sensorAlreadyActivated(Sensor sensor, boolean wishToActivate, AlarmStatus alarmStatus) {
+        return delegate.sensorAlreadyActivated(sensor, wishToActivate, alarmStatus);
+    }
+
+    @Override
+    public AlarmStatus catDetectedAlarmStatus(boolean isThereACat) {
+        return delegate.catDetectedAlarmStatus(isThereACat);
+    }
+
+    @Override
+    public AlarmStatus noCatDetected(boolean isThereACat, Set<Sensor> sensors) {
+        return delegate.noCatDetected(isThereACat, sensors);
+    }
+
+    @Override
+    public AlarmStatus noAlarm(ArmingStatus armingStatus) {
+        return delegate.noAlarm(armingStatus);
+    }
+
+    @Override
+    public Set<Sensor> resetSensors(ArmingStatus armingStatus, Set<Sensor> sensors) {
+        return delegate.resetSensors(armingStatus, sensors);
+    }
+
+    /**
+     * Changes taken out of the pending state for one write to the delegate.
+     */
+    private static class PendingChanges {
+        private AlarmStatus alarmStatus;
+        private ArmingStatus armingStatus;
+        private final List<Sensor> removed = new ArrayList<>();
+        private final List<Sensor> added = new ArrayList<>();
+        private final List<Sensor> updated = new ArrayList<>();
+
+        private void writeTo(SecurityRepository repository) {
+            removed.forEach(repository::removeSensor);
+            added.forEach(repository::addSensor);
+            if(!updated.isEmpty()) {
+                repository.updateSensors(updated);
+            }
+            if(armingStatus != null) {
+                repository.setArmingStatus(armingStatus);
+            }
+            if(alarmStatus != null) {
+                repository.setAlarmStatus(alarmStatus);
+            }
+        }
+
+        private int size() {
+            return (alarmStatus == null ? 0 : 1) + (armingStatus == null ? 0 : 1) + removed.size() + added.size() + updated.size();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package catpoint.service;
+
+import catpoint.data.AlarmStatus;
+import catpoint.data.ArmingStatus;
+import catpoint.data.SecurityRepository;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Holds the current {@link SystemState} in a single atomic reference. Transitions are computed
+ * from the state they start from and installed with compare-and-set, retrying if another thread
+ * got there first, so concurrent callers never overwrite each other's changes and never block.
+ */
+public class AlarmStateMachine {
+
+    private final AtomicReference<SystemState> state;
+
+    public AlarmStateMachine(ArmingStatus armingStatus, AlarmStatus alarmStatus) {
+        state = new AtomicReference<>(new SystemState(armingStatus, alarmStatus));
+    }
+
+    /**
+     * Starts from the statuses currently stored in the repository.
+     */
+    public static AlarmStateMachine loadFrom(SecurityRepository securityRepository) {
+        return new AlarmStateMachine(securityRepository.getArmingStatus(), securityRepository.getAlarmStatus());
+    }
+
+    public SystemState current() {
+        return state.get();
+    }
+
+    /**
+     * Applies a change atomically.
+     * @param change Computes the next state from the current one. May run more than once, so it must
+     *               not have side effects. Returning the same instance means no change.
+     * @return The states before and after the change
+     */
+    public Transition transition(UnaryOperator<SystemState> change) {
+        while(true) {
+            SystemState previous = state.get();
+            SystemState next = change.apply(previous);
+            if(next == previous) {
+                return new Transition(previous, previous);
+            }
+            next = next.withVersion(previous.getVersion() + 1);
+            if(state.compareAndSet(previous, next)) {
+                return new Transition(previous, next);
+            }
+        }
+    }
+
+    /**
+     * Outcome of {@link #transition}.
+     */
+    public static class Transition {
+        private final SystemState previous;
+        private final SystemState current;
+
+        private Transition(SystemState previous, SystemState current) {
+            this.previous = previous;
+            this.current = current;
+        }
+
+        public SystemState getPrevious() {
+            return previous;
+        }
+
+        public SystemState getCurrent() {
+            return current;
+        }
+
+        public boolean isChanged() {
+            return previous != current;
+        }
+    }
+}
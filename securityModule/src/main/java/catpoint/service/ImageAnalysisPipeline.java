@@ -0,0 +1,137 @@
+package catpoint.service;
+
+import service.ImageServiceInterface;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs image analysis off the caller's thread. Frames are placed on a bounded queue and picked
+ * up by a fixed set of worker threads, each of which drains up to a batch of frames at a time and
+ * hands them to the image service's batch API.
+ * Results are returned as CompletableFutures, so a slow image service never blocks the caller.
+ */
+public class ImageAnalysisPipeline {
+
+    private final ImageServiceInterface imageService;
+    private final BlockingQueue<AnalysisRequest> queue;
+    private final int maxBatchSize;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    /**
+     * @param imageService Service used to analyze each frame
+     * @param workerCount Number of frames that can be analyzed concurrently
+     * @param queueCapacity Number of frames that may wait for a worker before new frames are rejected
+     * @param maxBatchSize Maximum number of queued frames a worker takes at once
+     */
+    public ImageAnalysisPipeline(ImageServiceInterface imageService, int workerCount, int queueCapacity, int maxBatchSize) {
+        if(workerCount < 1 || queueCapacity < 1 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("Worker count, queue capacity and batch size must be positive");
+        }
+        this.imageService = imageService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        for(int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::work, "image-analysis-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Queues a frame for analysis.
+     * @return A future completed with true if the frame contains a cat. It completes exceptionally
+     * with a RejectedExecutionException if the queue is full or the pipeline was shut down.
+     */
+    public CompletableFuture<Boolean> submit(BufferedImage image, float confidenceThreshhold) {
+        AnalysisRequest request = new AnalysisRequest(image, confidenceThreshhold);
+        if(!running || !queue.offer(request)) {
+            request.result.completeExceptionally(new RejectedExecutionException("Image analysis queue is full"));
+        } else if(!running && queue.remove(request)) {
+            //raced with shutdown, nobody will pick this frame up
+            request.result.completeExceptionally(new CancellationException("Image analysis pipeline shut down"));
+        }
+        return request.result;
+    }
+
+    private void work() {
+        List<AnalysisRequest> batch = new ArrayList<>(maxBatchSize);
+        while(running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException exception) {
+                break;
+            }
+            queue.drainTo(batch, maxBatchSize - 1);
+            if(batch.size() == 1) {
+                analyze(batch.get(0));
+            } else {
+                analyzeBatch(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Sends frames that share a confidence threshold to the image service in one batch call.
+     */
+    private void analyzeBatch(List<AnalysisRequest> batch) {
+        Map<Float, List<AnalysisRequest>> byThreshhold = new LinkedHashMap<>();
+        batch.forEach(request -> byThreshhold.computeIfAbsent(request.confidenceThreshhold, t -> new ArrayList<>()).add(request));
+        byThreshhold.forEach((confidenceThreshhold, requests) -> {
+            List<BufferedImage> images = new ArrayList<>(requests.size());
+            requests.forEach(request -> images.add(request.image));
+            try {
+                List<Boolean> verdicts = imageService.imagesContainCat(images, confidenceThreshhold);
+                if(verdicts.size() != requests.size()) {
+                    throw new IllegalStateException("Image service returned " + verdicts.size() + " verdicts for " + requests.size() + " images");
+                }
+                for(int i = 0; i < requests.size(); i++) {
+                    requests.get(i).result.complete(verdicts.get(i));
+                }
+            } catch (RuntimeException exception) {
+                requests.forEach(request -> request.result.completeExceptionally(exception));
+            }
+        });
+    }
+
+    private void analyze(AnalysisRequest request) {
+        try {
+            request.result.complete(imageService.imageContainsCat(request.image, request.confidenceThreshhold));
+        } catch (RuntimeException exception) {
+            request.result.completeExceptionally(exception);
+        }
+    }
+
+    /**
+     * Stops the workers. Frames still waiting in the queue are cancelled.
+     */
+    public void shutdown() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        List<AnalysisRequest> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(request -> request.result.completeExceptionally(new CancellationException("Image analysis pipeline shut down")));
+    }
+
+    private static class AnalysisRequest {
+        private final BufferedImage image;
+        private final float confidenceThreshhold;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        private AnalysisRequest(BufferedImage image, float confidenceThreshhold) {
+            this.image = image;
+            this.confidenceThreshhold = confidenceThreshhold;
+        }
+    }
+}
@@ -5,10 +5,18 @@ import catpoint.data.AlarmStatus;
 import catpoint.data.ArmingStatus;
 import catpoint.data.SecurityRepository;
 import catpoint.data.Sensor;
+import catpoint.data.SensorType;
+import metrics.MetricsRegistry;
+import service.FrameDifferenceGate;
 import service.ImageServiceInterface;
 import java.awt.image.BufferedImage;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service that receives information about changes to the security system. Responsible for
@@ -19,26 +27,106 @@ import java.util.Set;
  */
 public class SecurityService {
 
+    private static final float CAT_CONFIDENCE_THRESHHOLD = 50.0f;
+    private static final String IMAGE_FEED = "image"; //window of frames passed to processImage, in its own voter
+
+    //defaults for the pipeline created on the first processImageAsync call
+    private static final int ANALYSIS_WORKERS = 2;
+    private static final int ANALYSIS_QUEUE_CAPACITY = 16;
+    private static final int ANALYSIS_BATCH_SIZE = 4;
+
     private ImageServiceInterface imageService;
     private SecurityRepository securityRepository;
-    private Set<StatusListener> statusListeners = new HashSet<>();
+    private StatusListenerDispatcher statusListeners;
+    private ImageAnalysisPipeline imageAnalysisPipeline;
+    private volatile FrameDifferenceGate frameDifferenceGate = new FrameDifferenceGate();
+
+    //frames are numbered on submission so a slow verdict can't overwrite a newer one
+    private final AtomicLong imageSequence = new AtomicLong();
+    private long lastAppliedImage;
+
+    //setting the arming status resets the alarm status, so a verdict applied before the last change no longer shows
+    private final AtomicLong armingChanges = new AtomicLong();
+    private final Object imageVerdictLock = new Object();
+    private Boolean lastImageVerdict; //guarded by imageVerdictLock, null until a frame got a verdict
+    private long imageVerdictArmingChange; //guarded by imageVerdictLock, armingChanges when it was last applied
+
+    //null unless created with a state machine, in which case it owns the arming and alarm status
+    private final AlarmStateMachine stateMachine;
+    private final Object publishLock = new Object();
+    private long lastPublishedVersion; //guarded by publishLock
+
+    private volatile MetricsRegistry metrics; //null until metrics are switched on
+
+    private final Set<String> camerasSeeingCat = new HashSet<>(); //guarded by itself
+    private boolean appliedCameraCat; //guarded by camerasSeeingCat, the overall verdict last applied
+    private long appliedCameraArmingChange; //guarded by camerasSeeingCat, armingChanges when it was applied
+    private final Object cameraVerdictLock = new Object(); //keeps overall verdicts applied one at a time
+
+    private volatile float confidenceThreshhold = CAT_CONFIDENCE_THRESHHOLD;
+    private volatile VerdictVoter verdictVoter; //null to act on every single verdict
+    //votes on frames passed to processImage, kept apart from the cameras' so no camera id can share its window
+    private volatile VerdictVoter imageVerdictVoter;
+    private final Object votingLock = new Object();
+    private long lastVotedImage; //guarded by votingLock
 
     public SecurityService(SecurityRepository securityRepository, ImageServiceInterface imageService) {
+        this(securityRepository, imageService, null, StatusListenerDispatcher.synchronous());
+    }
+
+    /**
+     * Creates a service that analyzes images submitted through processImageAsync with the given pipeline.
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageServiceInterface imageService, ImageAnalysisPipeline imageAnalysisPipeline) {
+        this(securityRepository, imageService, imageAnalysisPipeline, StatusListenerDispatcher.synchronous());
+    }
+
+    /**
+     * @param imageAnalysisPipeline Pipeline for processImageAsync, or null to create a default one when first needed
+     * @param statusListenerDispatcher Delivers status updates to registered listeners
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageServiceInterface imageService,
+                           ImageAnalysisPipeline imageAnalysisPipeline, StatusListenerDispatcher statusListenerDispatcher) {
+        this(securityRepository, imageService, imageAnalysisPipeline, statusListenerDispatcher, null);
+    }
+
+    /**
+     * Creates a service that can be driven from many threads at once. The arming and alarm status
+     * live in the state machine and every change is a single atomic transition, so concurrent
+     * sensor events and image verdicts never lose each other's updates. The repository is kept
+     * in step with the state machine but is no longer read for decisions.
+     * @param stateMachine Holds the arming and alarm status, or null to read and write them through the repository
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageServiceInterface imageService,
+                           ImageAnalysisPipeline imageAnalysisPipeline, StatusListenerDispatcher statusListenerDispatcher,
+                           AlarmStateMachine stateMachine) {
         this.securityRepository = securityRepository;
         this.imageService = imageService;
+        this.imageAnalysisPipeline = imageAnalysisPipeline;
+        this.statusListeners = statusListenerDispatcher;
+        this.stateMachine = stateMachine;
     }
 
     /**
      * Sets the current arming status for the system. Changing the arming status
-     * may update both the alarm status.
+     * may update both the alarm status. Arming the system resets all sensors to inactive.
      * @param armingStatus
      */
 
     public void setArmingStatus(ArmingStatus armingStatus) {
-        if(armingStatus == ArmingStatus.DISARMED) {
-            securityRepository.setAlarmStatus(AlarmStatus.NO_ALARM);
-        }else{securityRepository.setAlarmStatus(AlarmStatus.PENDING_ALARM);}
-        securityRepository.setArmingStatus(armingStatus);
+        long start = System.nanoTime();
+        if(stateMachine != null) {
+            AlarmStatus alarmStatus = armingStatus == ArmingStatus.DISARMED ? AlarmStatus.NO_ALARM : AlarmStatus.PENDING_ALARM;
+            persist(stateMachine.transition(state -> state.withArmingStatus(armingStatus).withAlarmStatus(alarmStatus)));
+        } else {
+            if(armingStatus == ArmingStatus.DISARMED) {
+                securityRepository.setAlarmStatus(AlarmStatus.NO_ALARM);
+            }else{securityRepository.setAlarmStatus(AlarmStatus.PENDING_ALARM);}
+            securityRepository.setArmingStatus(armingStatus);
+        }
+        armingChanges.incrementAndGet();
+        resetTheSensors(armingStatus);
+        recordLatency("service.setArmingStatus", start);
     }
 
 
@@ -47,7 +135,8 @@ public class SecurityService {
      * the camera currently shows a cat.
      * @param cat True if a cat is detected, otherwise false.
      */
-    public AlarmStatus catDetected(Boolean cat) {
+    public AlarmStatus catDetected(boolean cat) {
+        long start = System.nanoTime();
         AlarmStatus alarmStatus;
         if(cat && getArmingStatus() == ArmingStatus.ARMED_HOME || cat) {
             securityRepository.catDetectedAlarmStatus(cat);
@@ -59,29 +148,124 @@ public class SecurityService {
             alarmStatus = AlarmStatus.NO_ALARM;
         }
 
-        statusListeners.forEach(sl -> sl.catDetected(cat));
+        statusListeners.catDetected(cat);
+        recordLatency("service.catDetected", start);
         return alarmStatus;
     }
 
+    /**
+     * Applies the verdict on a frame from one of several cameras. A cat seen by any camera counts as
+     * a cat, and the cat only counts as gone once no camera sees it any more. Verdicts that leave
+     * that overall picture unchanged don't touch the alarm, unless the arming status was set since
+     * the picture was last applied. With a verdict voter set, the camera's voted decision counts
+     * rather than the single verdict.
+     * @param cameraId Camera the frame came from
+     * @param cat True if the frame contains a cat
+     * @return The alarm status after the verdict was applied
+     */
+    public AlarmStatus cameraVerdict(String cameraId, boolean cat) {
+        boolean stale;
+        synchronized (camerasSeeingCat) {
+            VerdictVoter voter = verdictVoter;
+            Boolean decision = voter == null ? Boolean.valueOf(cat) : voter.vote(cameraId, cat);
+            if(decision != null) {
+                if(decision) {
+                    camerasSeeingCat.add(cameraId);
+                } else {
+                    camerasSeeingCat.remove(cameraId);
+                }
+            } //otherwise the camera's decision stands
+            stale = cameraVerdictStale();
+        }
+        return stale ? applyCameraVerdict() : getAlarmStatus();
+    }
+
+    /**
+     * Forgets a camera that went away, including its votes. A cat only this camera saw no longer counts.
+     * @return The alarm status afterwards
+     */
+    public AlarmStatus cameraRemoved(String cameraId) {
+        boolean stale;
+        synchronized (camerasSeeingCat) {
+            VerdictVoter voter = verdictVoter;
+            if(voter != null) {
+                voter.reset(cameraId);
+            }
+            camerasSeeingCat.remove(cameraId);
+            stale = cameraVerdictStale();
+        }
+        return stale ? applyCameraVerdict() : getAlarmStatus();
+    }
+
+    /**
+     * Applies the overall camera verdict again if the arming status was set since it was last
+     * applied, e.g. for a camera frame skipped because the scene hasn't changed. Otherwise does nothing.
+     * @return The alarm status afterwards
+     */
+    public AlarmStatus reapplyCameraVerdict() {
+        boolean stale;
+        synchronized (camerasSeeingCat) {
+            stale = cameraVerdictStale();
+        }
+        return stale ? applyCameraVerdict() : getAlarmStatus();
+    }
+
+    /**
+     * @return True if the overall camera verdict differs from the one last applied, or the arming
+     * status was set since. Must be called while holding the camerasSeeingCat lock.
+     */
+    private boolean cameraVerdictStale() {
+        return appliedCameraCat == camerasSeeingCat.isEmpty() || appliedCameraArmingChange != armingChanges.get();
+    }
+
+    /**
+     * Applies the latest overall camera verdict, outside the camerasSeeingCat lock, so camera
+     * workers whose verdicts change nothing don't wait for the alarm status to be written.
+     */
+    private AlarmStatus applyCameraVerdict() {
+        synchronized (cameraVerdictLock) {
+            boolean stale;
+            boolean cat;
+            synchronized (camerasSeeingCat) {
+                stale = cameraVerdictStale(); //another worker may have applied it while this one waited
+                cat = !camerasSeeingCat.isEmpty();
+                if(stale) {
+                    appliedCameraCat = cat;
+                    appliedCameraArmingChange = armingChanges.get();
+                }
+            }
+            return stale ? catDetected(cat) : getAlarmStatus();
+        }
+    }
+
     /**
      * Register the StatusListener for alarm system updates from within the SecurityService.
      * @param statusListener
      */
     public void addStatusListener(StatusListener statusListener) {
-        statusListeners.add(statusListener);
+        statusListeners.addStatusListener(statusListener);
     }
 
-//    public void removeStatusListener(StatusListener statusListener) {
-//        statusListeners.remove(statusListener);
-//    }
+    public void removeStatusListener(StatusListener statusListener) {
+        statusListeners.removeStatusListener(statusListener);
+    }
 
     /**
-     * Change the alarm status of the system and notify all listeners.
+     * Change the alarm status of the system and notify all listeners. Entering ALARM is flushed
+     * to storage before returning, even if the repository normally writes in the background.
      * @param status
      */
     public void setAlarmStatus(AlarmStatus status) {
+        if(stateMachine != null) {
+            persist(stateMachine.transition(state -> state.withAlarmStatus(status)));
+            publishAlarmStatus();
+            return;
+        }
         securityRepository.setAlarmStatus(status);
-        statusListeners.forEach(sl -> sl.notify(status));
+        if(status == AlarmStatus.ALARM) {
+            securityRepository.flush();
+        }
+        statusListeners.notify(status);
     }
 
     /**
@@ -101,6 +285,12 @@ public class SecurityService {
      * Internal method for updating the alarm status when a sensor has been deactivated
      */
     public void handleSensorDeactivated() {
+        if(stateMachine != null) {
+            if(persist(stateMachine.transition(SecurityService::afterSensorDeactivated))) {
+                publishAlarmStatus();
+            }
+            return;
+        }
         try {
             switch(securityRepository.getAlarmStatus()) {
                 case PENDING_ALARM -> setAlarmStatus(AlarmStatus.NO_ALARM);
@@ -138,21 +328,67 @@ public class SecurityService {
             return AlarmStatus.NO_ALARM;}securityRepository.noAlarmStatus(alarmStatus,sensors);
         return AlarmStatus.PENDING_ALARM;}
 
+    /**
+     * Same as noAlarmSet for the repository's own sensors, answered from its active sensor count
+     * instead of checking every sensor.
+     */
+    public AlarmStatus noAlarmSet(AlarmStatus alarmStatus)
+    {
+        if(hasActiveSensors()) {
+            return AlarmStatus.PENDING_ALARM;
+        }
+        securityRepository.noAlarmStatus(alarmStatus, getSensors());
+        return alarmStatus.equals(AlarmStatus.PENDING_ALARM) ? AlarmStatus.NO_ALARM : AlarmStatus.PENDING_ALARM;
+    }
+
 
     /**
      * Change the activation status for the specified sensor and update alarm status if necessary.
      * @param sensor
      * @param active
      */
-    public void changeSensorActivationStatus(Sensor sensor, Boolean active) { //Works with test 4 GUI PORTION
-        if (getAlarmStatus() == AlarmStatus.PENDING_ALARM && !sensor.getActive()) {
+    public void changeSensorActivationStatus(Sensor sensor, boolean active) { //Works with test 4 GUI PORTION
+        long start = System.nanoTime();
+        applySensorActivation(sensor, active);
+        securityRepository.updateSensor(sensor);
+        statusListeners.sensorStatusChanged();
+        recordLatency("service.changeSensorActivationStatus", start);
+    }
+
+    /**
+     * Updates the alarm status for a sensor changing to the given state and sets it on the sensor,
+     * without persisting the sensor or notifying listeners. Callers changing many sensors at once
+     * follow up with a single {@link #updateSensors} call.
+     */
+    void applySensorActivation(Sensor sensor, boolean active) {
+        if(stateMachine != null) {
+            //check and change the alarm status in one step, so no other event can slip in between
+            boolean wasActive = sensor.getActive();
+            AlarmStateMachine.Transition transition = stateMachine.transition(state ->
+                    (state.getAlarmStatus() == AlarmStatus.PENDING_ALARM && !wasActive)
+                            || (state.getAlarmStatus() == AlarmStatus.ALARM && state.getArmingStatus() == ArmingStatus.DISARMED)
+                            ? afterSensorDeactivated(state) : state);
+            if(persist(transition)) {
+                publishAlarmStatus();
+            }
+        } else if (getAlarmStatus() == AlarmStatus.PENDING_ALARM && !sensor.getActive()) {
             handleSensorDeactivated();
         } else if (getAlarmStatus() == AlarmStatus.ALARM && getArmingStatus() == ArmingStatus.DISARMED) {
             handleSensorDeactivated();
         }
 
         sensor.setActive(active);
-        securityRepository.updateSensor(sensor);
+    }
+
+    /**
+     * Persists sensors changed through {@link #applySensorActivation} and tells listeners once.
+     */
+    void updateSensors(Collection<Sensor> sensors) {
+        if(sensors.isEmpty()) {
+            return;
+        }
+        securityRepository.updateSensors(sensors);
+        statusListeners.sensorStatusChanged();
     }
    public AlarmStatus sensorAlreadyActivated(Sensor sensor, boolean wishToActivate, AlarmStatus alarmStatus) //Works with test 5
    {
@@ -186,6 +422,21 @@ public class SecurityService {
         return catDetected(isThereACat);
     }
 
+    /**
+     * Same as noCatNoAlarmSet for the repository's own sensors, answered from its active sensor count.
+     */
+    public AlarmStatus noCatNoAlarmSet(boolean isThereACat)
+    {
+        if(!isThereACat)
+        {
+            if(hasActiveSensors()) {
+                return AlarmStatus.PENDING_ALARM;
+            }
+            securityRepository.noCatDetected(isThereACat, getSensors());
+        }
+        return catDetected(isThereACat);
+    }
+
     public AlarmStatus noAlarm(ArmingStatus armingStatus) //for test 9
     {
         if(armingStatus.equals(ArmingStatus.DISARMED))
@@ -211,6 +462,20 @@ public Set<Sensor> resetTheSensors(ArmingStatus armingStatus, Set<Sensor> sensor
     return sensors;
 }
 
+    /**
+     * Same as resetTheSensors for the repository's own sensors. Only the sensors that are
+     * currently active are visited, and they are persisted in one batch.
+     */
+    public void resetTheSensors(ArmingStatus armingStatus)
+    {
+        if(armingStatus.equals(ArmingStatus.ARMED_AWAY) || armingStatus.equals(ArmingStatus.ARMED_HOME))
+        {
+            List<Sensor> activeSensors = securityRepository.getActiveSensors();
+            activeSensors.forEach(aSensor -> aSensor.setActive(false));
+            updateSensors(activeSensors);
+        }
+    }
+
 
 
     /**
@@ -219,14 +484,277 @@ public Set<Sensor> resetTheSensors(ArmingStatus armingStatus, Set<Sensor> sensor
      * @param currentCameraImage
      */
     public void processImage(BufferedImage currentCameraImage) {
-        catDetected(imageService.imageContainsCat(currentCameraImage, 50.0f));
+        long start = System.nanoTime();
+        if(!frameChanged(currentCameraImage)) {
+            countSkippedFrame();
+            reapplyImageVerdict(); //same scene as the last analyzed frame, so its verdict still stands
+            return;
+        }
+        boolean cat;
+        try {
+            cat = imageService.imageContainsCat(currentCameraImage, confidenceThreshhold);
+        } catch (RuntimeException exception) {
+            resetFrameDifferenceGate();
+            throw exception;
+        }
+        VerdictVoter voter = imageVerdictVoter;
+        Boolean decision = voter == null ? Boolean.valueOf(cat) : voter.vote(IMAGE_FEED, cat);
+        if(decision != null) {
+            rememberImageVerdict(decision);
+            catDetected(decision);
+        } else {
+            reapplyImageVerdict(); //the voted decision stands
+        }
+        recordLatency("service.processImage", start);
     }
 
+    /**
+     * Same as processImage, but the image is analyzed on a worker thread and the call returns
+     * immediately. If several images are in flight, only verdicts at least as new as the last
+     * applied one change the alarm status.
+     * @param currentCameraImage
+     * @return The alarm status after the verdict was applied
+     */
+    public CompletableFuture<AlarmStatus> processImageAsync(BufferedImage currentCameraImage) {
+        long start = System.nanoTime();
+        if(!frameChanged(currentCameraImage)) {
+            countSkippedFrame();
+            reapplyImageVerdict();
+            return CompletableFuture.completedFuture(getAlarmStatus());
+        }
+        long sequence = imageSequence.incrementAndGet();
+        CompletableFuture<Boolean> verdict = getImageAnalysisPipeline().submit(currentCameraImage, confidenceThreshhold);
+        verdict.whenComplete((cat, throwable) -> {
+            if(throwable != null) {
+                resetFrameDifferenceGate();
+            }
+        });
+        return verdict.thenApply(cat -> {
+            AlarmStatus alarmStatus = applyVotedImageVerdict(sequence, cat);
+            recordLatency("service.processImageAsync", start);
+            return alarmStatus;
+        });
+    }
+
+    /**
+     * Replaces the gate that skips analysis of frames matching the last analyzed one.
+     * @param frameDifferenceGate The new gate, or null to analyze every frame
+     */
+    public void setFrameDifferenceGate(FrameDifferenceGate frameDifferenceGate) {
+        this.frameDifferenceGate = frameDifferenceGate;
+    }
 
+    /**
+     * @param confidenceThreshhold Minimum confidence, from 0 to 100, for the image service to call a frame a cat
+     */
+    public void setConfidenceThreshhold(float confidenceThreshhold) {
+        if(confidenceThreshhold < 0 || confidenceThreshhold > 100) {
+            throw new IllegalArgumentException("Confidence threshhold must be between 0 and 100");
+        }
+        this.confidenceThreshhold = confidenceThreshhold;
+    }
 
+    public float getConfidenceThreshhold() {
+        return confidenceThreshhold;
+    }
 
-    public AlarmStatus getAlarmStatus() {
+    /**
+     * Makes the alarm follow a vote over each camera's recent frames instead of every single verdict,
+     * so one misread frame neither raises nor clears it. Frames passed to processImage are voted on
+     * with the same window and quorum, in a window of their own.
+     * @param verdictVoter The voter, or null to act on every verdict
+     */
+    public void setVerdictVoter(VerdictVoter verdictVoter) {
+        this.imageVerdictVoter = verdictVoter == null ? null : new VerdictVoter(verdictVoter.getWindowSize(), verdictVoter.getQuorum());
+        this.verdictVoter = verdictVoter;
+    }
+
+    /**
+     * Starts recording how long the service's operations take, as "service.*" metrics in the given
+     * registry, along with listener delivery latency.
+     * @param registry Registry to record into, or null to stop recording
+     */
+    public void setMetricsRegistry(MetricsRegistry registry) {
+        this.metrics = registry;
+        statusListeners.setMetricsRegistry(registry);
+    }
+
+    private void recordLatency(String name, long startNanos) {
+        MetricsRegistry registry = metrics;
+        if(registry != null) {
+            registry.histogram(name).recordSince(startNanos);
+        }
+    }
+
+    private void countSkippedFrame() {
+        MetricsRegistry registry = metrics;
+        if(registry != null) {
+            registry.counter("service.framesSkipped").increment();
+        }
+    }
+
+    private boolean frameChanged(BufferedImage currentCameraImage) {
+        FrameDifferenceGate gate = frameDifferenceGate;
+        return gate == null || gate.hasChanged(currentCameraImage);
+    }
+
+    private void rememberImageVerdict(boolean cat) {
+        synchronized (imageVerdictLock) {
+            lastImageVerdict = cat;
+            imageVerdictArmingChange = armingChanges.get();
+        }
+    }
+
+    /**
+     * Applies the last image verdict again if the arming status was set since it was applied, as
+     * setting it resets the alarm status. Otherwise the verdict still shows and nothing is done.
+     */
+    private void reapplyImageVerdict() {
+        Boolean cat;
+        synchronized (imageVerdictLock) {
+            cat = lastImageVerdict;
+            if(cat == null || imageVerdictArmingChange == armingChanges.get()) {
+                return;
+            }
+            imageVerdictArmingChange = armingChanges.get();
+        }
+        catDetected(cat);
+    }
+
+    private void resetFrameDifferenceGate() {
+        //the frame that passed the gate never got a verdict, so don't let it suppress the next one
+        FrameDifferenceGate gate = frameDifferenceGate;
+        if(gate != null) {
+            gate.reset();
+        }
+    }
+
+    private synchronized ImageAnalysisPipeline getImageAnalysisPipeline() {
+        if(imageAnalysisPipeline == null) {
+            imageAnalysisPipeline = new ImageAnalysisPipeline(imageService, ANALYSIS_WORKERS, ANALYSIS_QUEUE_CAPACITY, ANALYSIS_BATCH_SIZE);
+        }
+        return imageAnalysisPipeline;
+    }
+
+    /**
+     * Counts an asynchronous verdict towards the vote, in frame order, and applies the decision if it changed.
+     */
+    private AlarmStatus applyVotedImageVerdict(long sequence, boolean cat) {
+        VerdictVoter voter = imageVerdictVoter;
+        if(voter == null) {
+            return applyImageVerdict(sequence, cat);
+        }
+        Boolean decision;
+        synchronized (votingLock) {
+            if(sequence < lastVotedImage) {
+                return getAlarmStatus(); //a newer frame has already been counted
+            }
+            lastVotedImage = sequence;
+            decision = voter.vote(IMAGE_FEED, cat);
+        }
+        if(decision == null) {
+            reapplyImageVerdict(); //the voted decision stands
+            return getAlarmStatus();
+        }
+        return applyImageVerdict(sequence, decision);
+    }
+
+    private AlarmStatus applyImageVerdict(long sequence, boolean cat) {
+        if(stateMachine == null) {
+            return applyImageVerdictLocked(sequence, cat);
+        }
+        AlarmStatus alarmStatus = cat ? AlarmStatus.ALARM : AlarmStatus.NO_ALARM;
+        AlarmStateMachine.Transition transition = stateMachine.transition(state ->
+                state.getLastImageSequence() > sequence ? state : state.withImageVerdict(sequence, alarmStatus));
+        if(!transition.isChanged()) {
+            return transition.getCurrent().getAlarmStatus(); //a newer frame has already been applied
+        }
+        rememberImageVerdict(cat);
+        securityRepository.catDetectedAlarmStatus(cat);
+        persist(transition);
+        publishAlarmStatus();
+        statusListeners.catDetected(cat);
+        return alarmStatus;
+    }
+
+    private synchronized AlarmStatus applyImageVerdictLocked(long sequence, boolean cat) {
+        if(sequence < lastAppliedImage) {
+            return getAlarmStatus(); //a newer frame has already been applied
+        }
+        lastAppliedImage = sequence;
+        rememberImageVerdict(cat);
+        return catDetected(cat);
+    }
+
+    private static SystemState afterSensorDeactivated(SystemState state) {
+        return switch(state.getAlarmStatus()) {
+            case PENDING_ALARM -> state.withAlarmStatus(AlarmStatus.NO_ALARM);
+            case ALARM -> state.withAlarmStatus(AlarmStatus.PENDING_ALARM);
+            default -> state;
+        };
+    }
+
+    /**
+     * Writes a transition through to the repository. If another transition lands while this one
+     * is being written, the repository is brought up to the latest state before returning, so the
+     * last writer always leaves the repository matching the state machine.
+     * @return True if the transition changed the state
+     */
+    private boolean persist(AlarmStateMachine.Transition transition) {
+        if(!transition.isChanged()) {
+            return false;
+        }
+        SystemState written = transition.getCurrent();
+        if(written.getArmingStatus() != transition.getPrevious().getArmingStatus()) {
+            securityRepository.setArmingStatus(written.getArmingStatus());
+        }
+        if(written.getAlarmStatus() != transition.getPrevious().getAlarmStatus()) {
+            securityRepository.setAlarmStatus(written.getAlarmStatus());
+        }
+        SystemState latest;
+        while((latest = stateMachine.current()) != written) {
+            securityRepository.setArmingStatus(latest.getArmingStatus());
+            securityRepository.setAlarmStatus(latest.getAlarmStatus());
+            written = latest;
+        }
+        if(transition.getCurrent().getAlarmStatus() == AlarmStatus.ALARM && transition.getPrevious().getAlarmStatus() != AlarmStatus.ALARM) {
+            securityRepository.flush();
+        }
+        return true;
+    }
 
+    /**
+     * Tells listeners the current alarm status. Listeners only ever move forward: a thread that
+     * lost the race to a newer state doesn't publish its older one afterwards.
+     */
+    private void publishAlarmStatus() {
+        synchronized (publishLock) {
+            SystemState state = stateMachine.current();
+            if(state.getVersion() <= lastPublishedVersion) {
+                return;
+            }
+            lastPublishedVersion = state.getVersion();
+            statusListeners.notify(state.getAlarmStatus());
+        }
+    }
+
+    /**
+     * Stops background image analysis and listener delivery. Images still waiting for analysis are cancelled.
+     */
+    public synchronized void shutdown() {
+        if(imageAnalysisPipeline != null) {
+            imageAnalysisPipeline.shutdown();
+        }
+        statusListeners.shutdown();
+    }
+
+
+
+
+    public AlarmStatus getAlarmStatus() {
+        if(stateMachine != null) {
+            return stateMachine.current().getAlarmStatus();
+        }
         return securityRepository.getAlarmStatus();
     }
 
@@ -234,6 +762,22 @@ public Set<Sensor> resetTheSensors(ArmingStatus armingStatus, Set<Sensor> sensor
         return securityRepository.getSensors();
     }
 
+    public Sensor findSensor(UUID sensorId) {
+        return securityRepository.findSensor(sensorId);
+    }
+
+    public boolean hasActiveSensors() {
+        return securityRepository.getActiveSensorCount() > 0;
+    }
+
+    public int getActiveSensorCount() {
+        return securityRepository.getActiveSensorCount();
+    }
+
+    public int getActiveSensorCount(SensorType sensorType) {
+        return securityRepository.getActiveSensorCount(sensorType);
+    }
+
     public void addSensor(Sensor sensor) {
         securityRepository.addSensor(sensor);
     }
@@ -243,6 +787,9 @@ public Set<Sensor> resetTheSensors(ArmingStatus armingStatus, Set<Sensor> sensor
     }
 
     public ArmingStatus getArmingStatus() {
+        if(stateMachine != null) {
+            return stateMachine.current().getArmingStatus();
+        }
         return securityRepository.getArmingStatus();
     }
 }
@@ -0,0 +1,188 @@
+package catpoint.service;
+
+import catpoint.data.Sensor;
+import catpoint.data.SensorType;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Collapses bursts of sensor events before they reach the rest of the system. The first event
+ * from a sensor opens a window; events arriving while it is open only replace the pending state.
+ * When the window closes, the latest event is passed on if it differs from the state the sensor
+ * was in before the burst, and dropped otherwise, so a door that bounces open and shut produces
+ * no events at all.
+ *
+ * Windows are set per sensor type and can be overridden for individual sensors. A window of zero
+ * passes events straight through.
+ *
+ * The state before a burst is read from the sensor when the burst opens, so changes made to the
+ * sensor outside the debouncer, such as a reset on arming, are taken into account. Forwarded
+ * events are expected to be applied to the sensor within a window, as the ingestor does.
+ */
+public class SensorDebouncer {
+
+    private final Consumer<SensorEvent> downstream;
+    private final Function<UUID, Sensor> sensorLookup;
+    private final long defaultWindowMillis;
+    private final Map<SensorType, Long> typeWindows = new EnumMap<>(SensorType.class); //guarded by this
+    private final Map<UUID, Long> sensorWindows = new ConcurrentHashMap<>();
+
+    private final Map<UUID, Burst> bursts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean running = true;
+
+    private final AtomicLong forwardedCount = new AtomicLong();
+    private final AtomicLong suppressedCount = new AtomicLong();
+
+    /**
+     * @param downstream Receives the events that survive debouncing, for example a {@link SensorEventIngestor}
+     * @param sensorLookup Finds a sensor by id, used for its type and its state before the first burst.
+     *                     Events for sensors it doesn't know are passed straight through.
+     * @param defaultWindowMillis Window for sensor types without their own setting
+     */
+    public SensorDebouncer(Consumer<SensorEvent> downstream, Function<UUID, Sensor> sensorLookup, long defaultWindowMillis) {
+        this.downstream = downstream;
+        this.sensorLookup = sensorLookup;
+        this.defaultWindowMillis = defaultWindowMillis;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sensor-debounce");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public synchronized void setWindow(SensorType sensorType, long windowMillis) {
+        typeWindows.put(sensorType, windowMillis);
+    }
+
+    /**
+     * Overrides the window of the sensor's type for this sensor only.
+     */
+    public void setSensorWindow(UUID sensorId, long windowMillis) {
+        sensorWindows.put(sensorId, windowMillis);
+    }
+
+    public void accept(SensorEvent event) {
+        UUID sensorId = event.getSensorId();
+        Sensor sensor = sensorLookup.apply(sensorId);
+        long window = sensor == null ? 0 : windowFor(sensor);
+        if(window <= 0 || !running) {
+            forward(event);
+            return;
+        }
+
+        Burst[] opened = new Burst[1];
+        bursts.compute(sensorId, (id, burst) -> {
+            if(burst == null) {
+                opened[0] = new Burst(sensor.getActive(), event);
+                return opened[0];
+            }
+            burst.add(event);
+            return burst;
+        });
+        if(opened[0] != null) {
+            Burst burst = opened[0];
+            try {
+                scheduler.schedule(() -> close(sensorId, burst), window, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                close(sensorId, burst); //shut down while this burst was opening
+            }
+        }
+    }
+
+    /**
+     * Closes every open window now instead of waiting for it to expire.
+     */
+    public void flush() {
+        new ArrayList<>(bursts.entrySet()).forEach(entry -> close(entry.getKey(), entry.getValue()));
+    }
+
+    /**
+     * Closes the open windows and stops the timer thread. Events accepted afterwards are passed
+     * straight through.
+     */
+    public void shutdown() {
+        running = false;
+        scheduler.shutdownNow();
+        flush();
+    }
+
+    /**
+     * @return Number of events passed on
+     */
+    public long getForwardedCount() {
+        return forwardedCount.get();
+    }
+
+    /**
+     * @return Number of events absorbed into a later event or cancelled out by a burst
+     */
+    public long getSuppressedCount() {
+        return suppressedCount.get();
+    }
+
+    private long windowFor(Sensor sensor) {
+        Long window = sensorWindows.get(sensor.getSensorId());
+        if(window != null) {
+            return window;
+        }
+        synchronized (this) {
+            return typeWindows.getOrDefault(sensor.getSensorType(), defaultWindowMillis);
+        }
+    }
+
+    private void close(UUID sensorId, Burst burst) {
+        boolean[] closed = new boolean[1];
+        bursts.computeIfPresent(sensorId, (id, current) -> {
+            if(current != burst) {
+                return current; //already closed by flush, this is a newer burst
+            }
+            closed[0] = true;
+            return null;
+        });
+        if(!closed[0]) {
+            return;
+        }
+        if(burst.latest.isActive() != burst.initialState) {
+            suppressedCount.addAndGet(burst.events - 1);
+            forwardedCount.incrementAndGet();
+            downstream.accept(burst.latest);
+        } else {
+            suppressedCount.addAndGet(burst.events);
+        }
+    }
+
+    private void forward(SensorEvent event) {
+        forwardedCount.incrementAndGet();
+        downstream.accept(event);
+    }
+
+    private static class Burst {
+        private final boolean initialState;
+        private SensorEvent latest;
+        private int events = 1;
+
+        private Burst(boolean initialState, SensorEvent first) {
+            this.initialState = initialState;
+            this.latest = first;
+        }
+
+        private void add(SensorEvent event) {
+            events++;
+            if(event.getTimestamp() >= latest.getTimestamp()) {
+                latest = event;
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package catpoint.service;
+
+import java.util.UUID;
+
+/**
+ * A sensor reporting its state, as received from a hub.
+ */
+public final class SensorEvent {
+
+    private final UUID sensorId;
+    private final boolean active;
+    private final long timestamp;
+
+    /**
+     * @param timestamp When the hub observed the change, in milliseconds. Events older than one
+     *                  already applied for the same sensor are ignored.
+     */
+    public SensorEvent(UUID sensorId, boolean active, long timestamp) {
+        this.sensorId = sensorId;
+        this.active = active;
+        this.timestamp = timestamp;
+    }
+
+    public UUID getSensorId() {
+        return sensorId;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "SensorEvent{" + sensorId + ", active=" + active + ", t=" + timestamp + "}";
+    }
+}
@@ -0,0 +1,185 @@
+package catpoint.service;
+
+import catpoint.data.Sensor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless entry point for streams of sensor events. Any number of threads publish events into a
+ * fixed-size ring buffer; a single consumer thread takes them off in publication order, applies
+ * each one to the security service and persists the sensors touched by a batch in one go.
+ *
+ * An event whose timestamp is older than the last applied event for the same sensor is dropped,
+ * as are events for sensors the service doesn't know.
+ */
+public class SensorEventIngestor {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final SecurityService securityService;
+    private final AtomicReferenceArray<SensorEvent> slots; //a null slot has not been published yet
+    private final int mask;
+    private final int maxBatchSize;
+
+    private final AtomicLong claimed = new AtomicLong(); //next sequence a producer will claim
+    private final AtomicLong consumed = new AtomicLong(); //next sequence the consumer will read
+    private final Thread consumer;
+    private volatile boolean consumerParked;
+    private volatile boolean running = true;
+
+    private final Map<UUID, Long> lastTimestamps = new HashMap<>(); //only touched by the consumer thread
+
+    private final AtomicLong appliedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * @param capacity Number of events that can wait to be applied, must be a power of two
+     * @param maxBatchSize Maximum number of events applied before the touched sensors are persisted
+     */
+    public SensorEventIngestor(SecurityService securityService, int capacity, int maxBatchSize) {
+        if(capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        if(maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.securityService = securityService;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.maxBatchSize = maxBatchSize;
+        consumer = new Thread(this::consume, "sensor-ingest");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Publishes an event without waiting.
+     * @return False if the buffer is full or the ingestor was shut down
+     */
+    public boolean offer(SensorEvent event) {
+        if(!running) {
+            return false;
+        }
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if(sequence - consumed.get() >= slots.length()) {
+                return false;
+            }
+        } while(!claimed.compareAndSet(sequence, sequence + 1));
+        slots.set((int) sequence & mask, event);
+        if(consumerParked) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Publishes an event, waiting for room in the buffer if necessary.
+     * @throws IllegalStateException If the ingestor was shut down
+     */
+    public void publish(SensorEvent event) {
+        while(!offer(event)) {
+            if(!running) {
+                throw new IllegalStateException("Sensor event ingestor shut down");
+            }
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Waits until every event published before this call has been applied and persisted.
+     */
+    public void flush() {
+        long target = claimed.get();
+        while(consumed.get() < target && consumer.isAlive()) {
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Stops accepting events. Events already published are still applied before the consumer exits,
+     * but an event published while this call is in progress may be lost.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(consumer);
+    }
+
+    public long getAppliedCount() {
+        return appliedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    private void consume() {
+        List<SensorEvent> batch = new ArrayList<>(maxBatchSize);
+        long next = 0;
+        while(true) {
+            while(batch.size() < maxBatchSize) {
+                int slot = (int) (next + batch.size()) & mask;
+                SensorEvent event = slots.get(slot);
+                if(event == null) {
+                    break; //claimed but not written yet, or nothing published
+                }
+                slots.set(slot, null);
+                batch.add(event);
+            }
+            if(batch.isEmpty()) {
+                if(!running && claimed.get() == next) {
+                    return;
+                }
+                consumerParked = true;
+                if(slots.get((int) next & mask) == null) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                consumerParked = false;
+                continue;
+            }
+            try {
+                apply(batch);
+            } catch (RuntimeException exception) {
+                //keep consuming, one bad batch must not stall every sensor behind it
+                Thread current = Thread.currentThread();
+                current.getUncaughtExceptionHandler().uncaughtException(current, exception);
+            }
+            next += batch.size();
+            consumed.set(next);
+            batch.clear();
+        }
+    }
+
+    private void apply(List<SensorEvent> batch) {
+        Map<UUID, Sensor> touched = new LinkedHashMap<>();
+        for(SensorEvent event : batch) {
+            Sensor sensor = securityService.findSensor(event.getSensorId());
+            if(sensor == null) {
+                lastTimestamps.remove(event.getSensorId()); //removed sensors shouldn't pin their timestamps
+                droppedCount.incrementAndGet();
+                continue;
+            }
+            Long lastTimestamp = lastTimestamps.get(event.getSensorId());
+            if(lastTimestamp != null && event.getTimestamp() < lastTimestamp) {
+                droppedCount.incrementAndGet();
+                continue;
+            }
+            lastTimestamps.put(event.getSensorId(), event.getTimestamp());
+            securityService.applySensorActivation(sensor, event.isActive());
+            touched.put(sensor.getSensorId(), sensor);
+            appliedCount.incrementAndGet();
+        }
+        securityService.updateSensors(touched.values());
+    }
+}
@@ -0,0 +1,240 @@
+package catpoint.service;
+
+import catpoint.application.StatusListener;
+import catpoint.data.AlarmStatus;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Delivers status events to listeners. Every listener has its own queue, drained by at most one
+ * executor task at a time, so each listener sees events in the order they were published while a
+ * slow listener only delays itself.
+ *
+ * With coalescing enabled, an event that has not been delivered yet is replaced by a newer event
+ * of the same kind, so a listener that falls behind skips straight to the latest state.
+ */
+public class StatusListenerDispatcher {
+
+    private static final int DISPATCH_THREADS = 4;
+    private static final int EVENTS_PER_TURN = 32; //then yield the thread to other listeners
+
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final boolean coalesce;
+    private final Map<StatusListener, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private volatile LatencyHistogram deliveryLatency;
+
+    /**
+     * @param executor Runs listener deliveries
+     * @param coalesce True to replace undelivered events with newer ones of the same kind
+     */
+    public StatusListenerDispatcher(Executor executor, boolean coalesce) {
+        this(executor, null, coalesce);
+    }
+
+    private StatusListenerDispatcher(Executor executor, ExecutorService ownedExecutor, boolean coalesce) {
+        this.executor = executor;
+        this.ownedExecutor = ownedExecutor;
+        this.coalesce = coalesce;
+    }
+
+    /**
+     * Delivers every event on the publishing thread before returning, as long as no other
+     * thread is delivering to the same listener.
+     */
+    public static StatusListenerDispatcher synchronous() {
+        return new StatusListenerDispatcher(Runnable::run, false);
+    }
+
+    /**
+     * Delivers events on a dedicated thread pool that is stopped by {@link #shutdown()}.
+     */
+    public static StatusListenerDispatcher async(boolean coalesce) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(DISPATCH_THREADS, r -> {
+            Thread thread = new Thread(r, "status-listener-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        return new StatusListenerDispatcher(executor, executor, coalesce);
+    }
+
+    public void addStatusListener(StatusListener statusListener) {
+        mailboxes.putIfAbsent(statusListener, new Mailbox(statusListener));
+    }
+
+    public void removeStatusListener(StatusListener statusListener) {
+        mailboxes.remove(statusListener);
+    }
+
+    public void notify(AlarmStatus status) {
+        publish(EventKind.ALARM_STATUS, listener -> listener.notify(status));
+    }
+
+    public void catDetected(boolean catDetected) {
+        publish(EventKind.CAT_DETECTED, listener -> listener.catDetected(catDetected));
+    }
+
+    public void sensorStatusChanged() {
+        publish(EventKind.SENSOR_STATUS, StatusListener::sensorStatusChanged);
+    }
+
+    private void publish(EventKind kind, Consumer<StatusListener> delivery) {
+        long now = System.nanoTime();
+        mailboxes.values().forEach(mailbox -> mailbox.post(new Event(kind, delivery, now)));
+    }
+
+    /**
+     * Time from publishing an event until the listener finished handling it.
+     * @return The latency so far, or null if the listener is not registered
+     */
+    public ListenerLatency getLatency(StatusListener statusListener) {
+        Mailbox mailbox = mailboxes.get(statusListener);
+        return mailbox == null ? null : new ListenerLatency(mailbox.delivered.get(), mailbox.totalNanos.get(), mailbox.maxNanos.get());
+    }
+
+    /**
+     * Also records the latency of every delivery, across all listeners, as "listener.delivery" in the registry.
+     */
+    public void setMetricsRegistry(MetricsRegistry registry) {
+        deliveryLatency = registry == null ? null : registry.histogram("listener.delivery");
+    }
+
+    /**
+     * Stops the dispatch threads if this dispatcher created them. Undelivered events are dropped.
+     */
+    public void shutdown() {
+        if(ownedExecutor != null) {
+            ownedExecutor.shutdownNow();
+        }
+    }
+
+    private enum EventKind {
+        ALARM_STATUS, CAT_DETECTED, SENSOR_STATUS
+    }
+
+    private static class Event {
+        private final EventKind kind;
+        private final Consumer<StatusListener> delivery;
+        private final long publishedAt;
+
+        private Event(EventKind kind, Consumer<StatusListener> delivery, long publishedAt) {
+            this.kind = kind;
+            this.delivery = delivery;
+            this.publishedAt = publishedAt;
+        }
+    }
+
+    private class Mailbox implements Runnable {
+        private final StatusListener listener;
+        private final Deque<Event> events = new ArrayDeque<>(); //guarded by this
+        private boolean scheduled; //guarded by this
+
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Mailbox(StatusListener listener) {
+            this.listener = listener;
+        }
+
+        private void post(Event event) {
+            synchronized (this) {
+                if(coalesce && !events.isEmpty() && events.peekLast().kind == event.kind) {
+                    events.pollLast();
+                }
+                events.addLast(event);
+                if(scheduled) {
+                    return; //the running drain will pick it up
+                }
+                scheduled = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException exception) {
+                synchronized (this) {
+                    //dispatcher was shut down, nobody will drain this mailbox any more
+                    events.clear();
+                    scheduled = false;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            for(int i = 0; i < EVENTS_PER_TURN; i++) {
+                Event event;
+                synchronized (this) {
+                    event = events.pollFirst();
+                    if(event == null) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                deliver(event);
+            }
+            schedule(); //more events are waiting, continue in a new turn
+        }
+
+        private void deliver(Event event) {
+            try {
+                event.delivery.accept(listener);
+            } catch (RuntimeException exception) {
+                //one failing listener must not stop delivery to itself or others
+                Thread current = Thread.currentThread();
+                current.getUncaughtExceptionHandler().uncaughtException(current, exception);
+            }
+            long latency = System.nanoTime() - event.publishedAt;
+            delivered.incrementAndGet();
+            totalNanos.addAndGet(latency);
+            maxNanos.accumulateAndGet(latency, Math::max);
+            LatencyHistogram histogram = deliveryLatency;
+            if(histogram != null) {
+                histogram.recordNanos(latency);
+            }
+        }
+    }
+
+    /**
+     * Delivery latency of one listener.
+     */
+    public static class ListenerLatency {
+        private final long deliveries;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private ListenerLatency(long deliveries, long totalNanos, long maxNanos) {
+            this.deliveries = deliveries;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getDeliveries() {
+            return deliveries;
+        }
+
+        public long getAverageNanos() {
+            return deliveries == 0 ? 0 : totalNanos / deliveries;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package catpoint.service;
+
+import catpoint.data.AlarmStatus;
+import catpoint.data.ArmingStatus;
+
+/**
+ * Immutable snapshot of the combined arming and alarm status. Every change produces a new
+ * instance with a higher version, so two states can be ordered and a lost update detected.
+ */
+public final class SystemState {
+
+    private final ArmingStatus armingStatus;
+    private final AlarmStatus alarmStatus;
+    private final long version;
+    private final long lastImageSequence; //newest camera frame whose verdict is reflected here
+
+    public SystemState(ArmingStatus armingStatus, AlarmStatus alarmStatus) {
+        this(armingStatus, alarmStatus, 0, 0);
+    }
+
+    private SystemState(ArmingStatus armingStatus, AlarmStatus alarmStatus, long version, long lastImageSequence) {
+        this.armingStatus = armingStatus;
+        this.alarmStatus = alarmStatus;
+        this.version = version;
+        this.lastImageSequence = lastImageSequence;
+    }
+
+    /**
+     * @return A state with the given arming status, or this state if it already has it
+     */
+    public SystemState withArmingStatus(ArmingStatus armingStatus) {
+        return armingStatus == this.armingStatus ? this : new SystemState(armingStatus, alarmStatus, version, lastImageSequence);
+    }
+
+    /**
+     * @return A state with the given alarm status, or this state if it already has it
+     */
+    public SystemState withAlarmStatus(AlarmStatus alarmStatus) {
+        return alarmStatus == this.alarmStatus ? this : new SystemState(armingStatus, alarmStatus, version, lastImageSequence);
+    }
+
+    /**
+     * @return A state reflecting the verdict for the given camera frame
+     */
+    public SystemState withImageVerdict(long imageSequence, AlarmStatus alarmStatus) {
+        return new SystemState(armingStatus, alarmStatus, version, imageSequence);
+    }
+
+    SystemState withVersion(long version) {
+        return new SystemState(armingStatus, alarmStatus, version, lastImageSequence);
+    }
+
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getLastImageSequence() {
+        return lastImageSequence;
+    }
+
+    @Override
+    public String toString() {
+        return "SystemState{" + armingStatus + ", " + alarmStatus + ", v" + version + "}";
+    }
+}
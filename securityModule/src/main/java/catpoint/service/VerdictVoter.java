@@ -0,0 +1,91 @@
+package catpoint.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns the noisy stream of per-frame verdicts from each camera into a stable decision. Every
+ * camera keeps a sliding window of its last verdicts; the decision only flips to cat once at least
+ * quorum of the window saw a cat, and back once at least quorum saw none. A single misread frame
+ * therefore changes nothing, and the decision doesn't flicker while verdicts are mixed.
+ *
+ * Each camera starts out deciding there is no cat.
+ */
+public class VerdictVoter {
+
+    private final int windowSize;
+    private final int quorum;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    /**
+     * @param windowSize Number of most recent verdicts per camera that count, at most 64
+     * @param quorum Verdicts within the window needed to change the decision; more than half the window
+     */
+    public VerdictVoter(int windowSize, int quorum) {
+        if(windowSize < 1 || windowSize > Long.SIZE) {
+            throw new IllegalArgumentException("Window size must be between 1 and " + Long.SIZE);
+        }
+        if(quorum * 2 <= windowSize || quorum > windowSize) {
+            throw new IllegalArgumentException("Quorum must be more than half of the window and no more than the window");
+        }
+        this.windowSize = windowSize;
+        this.quorum = quorum;
+    }
+
+    /**
+     * Adds a frame's verdict to the camera's window.
+     * @return The camera's new decision if this verdict changed it, otherwise null
+     */
+    public Boolean vote(String cameraId, boolean cat) {
+        return windows.computeIfAbsent(cameraId, id -> new Window()).add(cat);
+    }
+
+    /**
+     * @return The camera's current decision
+     */
+    public boolean isCat(String cameraId) {
+        Window window = windows.get(cameraId);
+        return window != null && window.isCat();
+    }
+
+    /**
+     * Forgets the camera's verdicts, e.g. when it goes offline. Its decision is no cat again.
+     */
+    public void reset(String cameraId) {
+        windows.remove(cameraId);
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getQuorum() {
+        return quorum;
+    }
+
+    private class Window {
+        private long history; //one bit per verdict, newest lowest, set for cat
+        private int filled;
+        private boolean cat;
+
+        private synchronized Boolean add(boolean verdict) {
+            long mask = windowSize == Long.SIZE ? -1L : (1L << windowSize) - 1;
+            history = ((history << 1) | (verdict ? 1 : 0)) & mask;
+            filled = Math.min(filled + 1, windowSize);
+            int cats = Long.bitCount(history);
+            if(!cat && cats >= quorum) {
+                cat = true;
+                return Boolean.TRUE;
+            }
+            if(cat && filled - cats >= quorum) {
+                cat = false;
+                return Boolean.FALSE;
+            }
+            return null;
+        }
+
+        private synchronized boolean isCat() {
+            return cat;
+        }
+    }
+}
@@ -7,6 +7,7 @@ module securityModule {
     requires java.sql;
     requires miglayout;
     requires imageModule;
+    requires metricsModule;
 
 
     opens catpoint.data to com.google.gson;
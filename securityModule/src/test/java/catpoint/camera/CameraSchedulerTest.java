@@ -0,0 +1,302 @@
+package catpoint.camera;
+
+import catpoint.data.AlarmStatus;
+import catpoint.data.ArmingStatus;
+import catpoint.data.LogFileSecurityRepositoryImpl;
+import catpoint.data.service.FakeImageService;
+import catpoint.service.AlarmStateMachine;
+import catpoint.service.SecurityService;
+import catpoint.service.StatusListenerDispatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import service.ImageServiceInterface;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+public class CameraSchedulerTest {
+
+    @TempDir
+    Path directory;
+
+    private SecurityService securityService;
+    private CameraScheduler scheduler;
+    private final List<BufferedImage> analyzed = new ArrayList<>(); //guarded by itself
+    private final List<Long> analyzedAt = new ArrayList<>(); //guarded by analyzed
+    private final List<Float> thresholds = new ArrayList<>(); //guarded by analyzed
+    private final CountDownLatch firstFrameEntered = new CountDownLatch(1);
+    private final CountDownLatch releaseFirstFrame = new CountDownLatch(1);
+    private volatile boolean cats;
+
+    @BeforeEach
+    void init() {
+        LogFileSecurityRepositoryImpl repository = new LogFileSecurityRepositoryImpl(directory);
+        securityService = new SecurityService(repository, new FakeImageService(), null,
+                StatusListenerDispatcher.synchronous(), AlarmStateMachine.loadFrom(repository));
+    }
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdown();
+        securityService.shutdown();
+    }
+
+    /**
+     * Records every frame it is asked about and holds the very first one until released.
+     */
+    private ImageServiceInterface recordingImageService() {
+        return (image, confidenceThreshhold) -> {
+            synchronized (analyzed) {
+                analyzed.add(image);
+                analyzedAt.add(System.nanoTime());
+                thresholds.add(confidenceThreshhold);
+            }
+            if(firstFrameEntered.getCount() > 0) {
+                firstFrameEntered.countDown();
+                try {
+                    releaseFirstFrame.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return cats;
+        };
+    }
+
+    @Test
+    void post_fasterThanAnalysis_oldestWaitingFramesDropped() throws InterruptedException {
+        scheduler = new CameraScheduler(securityService, recordingImageService(), 1, 2);
+        ManualCamera camera = new ManualCamera("front");
+        scheduler.addCamera(camera, 1000);
+        List<BufferedImage> frames = frames(6);
+
+        camera.push(frames.get(0));
+        Assertions.assertTrue(firstFrameEntered.await(5, TimeUnit.SECONDS));
+        for(int i = 1; i < frames.size(); i++) {
+            camera.push(frames.get(i));
+        }
+        releaseFirstFrame.countDown();
+        awaitCondition(() -> analyzedCount() == 3);
+
+        Assertions.assertEquals(List.of(frames.get(0), frames.get(4), frames.get(5)), analyzedFrames());
+        Assertions.assertEquals(3, scheduler.getStatistics("front").getDropped());
+    }
+
+    @Test
+    void post_busyCameraAndQuietCamera_camerasTakeTurns() throws InterruptedException {
+        scheduler = new CameraScheduler(securityService, recordingImageService(), 1, 4);
+        ManualCamera busy = new ManualCamera("busy");
+        ManualCamera quiet = new ManualCamera("quiet");
+        scheduler.addCamera(busy, 1000);
+        scheduler.addCamera(quiet, 1000);
+        List<BufferedImage> frames = frames(4);
+
+        busy.push(frames.get(0));
+        Assertions.assertTrue(firstFrameEntered.await(5, TimeUnit.SECONDS));
+        busy.push(frames.get(1));
+        busy.push(frames.get(2));
+        quiet.push(frames.get(3));
+        releaseFirstFrame.countDown();
+        awaitCondition(() -> analyzedCount() == 4);
+
+        Assertions.assertEquals(List.of(frames.get(0), frames.get(3), frames.get(1), frames.get(2)), analyzedFrames());
+    }
+
+    @Test
+    void post_frameRateCapped_framesSpacedByInterval() throws InterruptedException {
+        releaseFirstFrame.countDown();
+        scheduler = new CameraScheduler(securityService, recordingImageService(), 2, 4);
+        ManualCamera camera = new ManualCamera("front");
+        scheduler.addCamera(camera, 20);
+
+        frames(4).forEach(camera::push);
+        awaitCondition(() -> analyzedCount() == 4);
+
+        synchronized (analyzed) {
+            for(int i = 1; i < analyzedAt.size(); i++) {
+                long gap = analyzedAt.get(i) - analyzedAt.get(i - 1);
+                Assertions.assertTrue(gap >= TimeUnit.MILLISECONDS.toNanos(45), "frames " + gap + "ns apart");
+            }
+        }
+    }
+
+    @Test
+    void cameraVerdict_catOnOneCamera_alarmUntilThatCameraClears() throws InterruptedException {
+        releaseFirstFrame.countDown();
+        cats = true;
+        scheduler = new CameraScheduler(securityService, recordingImageService(), 1, 4);
+        ManualCamera front = new ManualCamera("front");
+        scheduler.addCamera(front, 1000);
+
+        front.push(frames(1).get(0));
+        awaitCondition(() -> securityService.getAlarmStatus() == AlarmStatus.ALARM);
+        Assertions.assertEquals(AlarmStatus.ALARM, securityService.cameraVerdict("back", false));
+
+        scheduler.removeCamera("front");
+        Assertions.assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    void post_catSeenBeforeArming_unchangedSceneRaisesAlarmOnceArmed() throws InterruptedException {
+        releaseFirstFrame.countDown();
+        cats = true;
+        scheduler = new CameraScheduler(securityService, recordingImageService(), 1, 4);
+        ManualCamera front = new ManualCamera("front");
+        scheduler.addCamera(front, 1000);
+        BufferedImage scene = frames(1).get(0);
+
+        securityService.setArmingStatus(ArmingStatus.DISARMED);
+        front.push(scene);
+        awaitCondition(() -> securityService.getAlarmStatus() == AlarmStatus.ALARM);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        Assertions.assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+
+        front.push(scene);
+        awaitCondition(() -> securityService.getAlarmStatus() == AlarmStatus.ALARM);
+        Assertions.assertEquals(1, analyzedCount());
+        Assertions.assertEquals(1, scheduler.getStatistics("front").getUnchanged());
+    }
+
+    @Test
+    void post_thresholdChangedOnService_laterFramesUseIt() throws InterruptedException {
+        releaseFirstFrame.countDown();
+        scheduler = new CameraScheduler(securityService, recordingImageService(), 1, 4);
+        ManualCamera front = new ManualCamera("front");
+        scheduler.addCamera(front, 1000);
+        List<BufferedImage> frames = frames(2);
+
+        securityService.setConfidenceThreshhold(80.0f);
+        front.push(frames.get(0));
+        awaitCondition(() -> analyzedCount() == 1);
+        securityService.setConfidenceThreshhold(30.0f);
+        front.push(frames.get(1));
+        awaitCondition(() -> analyzedCount() == 2);
+
+        synchronized (analyzed) {
+            Assertions.assertEquals(List.of(80.0f, 30.0f), thresholds);
+        }
+    }
+
+    @Test
+    void post_frameWithJpegBytes_bytesHandedToImageService() throws InterruptedException {
+        List<byte[]> received = new ArrayList<>(); //guarded by itself
+        ImageServiceInterface imageService = new ImageServiceInterface() {
+            @Override
+            public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+                synchronized (received) {
+                    received.add(null);
+                }
+                return false;
+            }
+
+            @Override
+            public boolean jpegContainsCat(byte[] jpeg, BufferedImage image, float confidenceThreshhold) {
+                synchronized (received) {
+                    received.add(jpeg);
+                }
+                return false;
+            }
+        };
+        scheduler = new CameraScheduler(securityService, imageService, 1, 4);
+        ManualCamera front = new ManualCamera("front");
+        scheduler.addCamera(front, 1000);
+        List<BufferedImage> frames = frames(2);
+        byte[] jpeg = {(byte) 0xFF, (byte) 0xD8};
+
+        front.push(frames.get(0), jpeg);
+        awaitCondition(() -> scheduler.getStatistics("front").getAnalyzed() == 1);
+        front.push(frames.get(1));
+        awaitCondition(() -> scheduler.getStatistics("front").getAnalyzed() == 2);
+
+        synchronized (received) {
+            Assertions.assertSame(jpeg, received.get(0));
+            Assertions.assertNull(received.get(1));
+        }
+    }
+
+    private int analyzedCount() {
+        synchronized (analyzed) {
+            return analyzed.size();
+        }
+    }
+
+    private List<BufferedImage> analyzedFrames() {
+        synchronized (analyzed) {
+            return new ArrayList<>(analyzed);
+        }
+    }
+
+    /**
+     * Frames of distinct brightness, far enough apart that the frame difference gate passes each one.
+     */
+    private static List<BufferedImage> frames(int count) {
+        List<BufferedImage> frames = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            BufferedImage frame = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = frame.createGraphics();
+            int level = (i % 2 == 0) ? 20 + i * 10 : 235 - i * 10;
+            graphics.setColor(new Color(level, level, level));
+            graphics.fillRect(0, 0, 64, 48);
+            graphics.dispose();
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    private static class ManualCamera implements CameraSource {
+        private final String id;
+        private volatile BiConsumer<BufferedImage, byte[]> consumer;
+
+        private ManualCamera(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public void start(Consumer<BufferedImage> frameConsumer) {
+            startEncoded((frame, jpeg) -> frameConsumer.accept(frame));
+        }
+
+        @Override
+        public void startEncoded(BiConsumer<BufferedImage, byte[]> frameConsumer) {
+            consumer = frameConsumer;
+        }
+
+        @Override
+        public void stop() {
+            consumer = null;
+        }
+
+        private void push(BufferedImage frame) {
+            push(frame, null);
+        }
+
+        private void push(BufferedImage frame, byte[] jpeg) {
+            consumer.accept(frame, jpeg);
+        }
+    }
+}
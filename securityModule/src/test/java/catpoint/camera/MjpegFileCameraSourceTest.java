@@ -0,0 +1,156 @@
+package catpoint.camera;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class MjpegFileCameraSourceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void nextJpeg_concatenatedJpegs_eachFrameDecodes() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(new byte[]{1, 2, 3}); //junk before the first frame is skipped
+        ImageIO.write(new BufferedImage(32, 16, BufferedImage.TYPE_INT_RGB), "jpg", stream);
+        ImageIO.write(new BufferedImage(8, 24, BufferedImage.TYPE_INT_RGB), "jpg", stream);
+        InputStream in = new ByteArrayInputStream(stream.toByteArray());
+
+        BufferedImage first = ImageIO.read(new ByteArrayInputStream(MjpegFileCameraSource.nextJpeg(in)));
+        BufferedImage second = ImageIO.read(new ByteArrayInputStream(MjpegFileCameraSource.nextJpeg(in)));
+
+        Assertions.assertEquals(32, first.getWidth());
+        Assertions.assertEquals(24, second.getHeight());
+        Assertions.assertNull(MjpegFileCameraSource.nextJpeg(in));
+    }
+
+    @Test
+    void nextJpeg_exifThumbnailInApp1_wholeFrameKept() throws IOException {
+        ByteArrayOutputStream thumbnail = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), "jpg", thumbnail);
+        ByteArrayOutputStream main = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB), "jpg", main);
+
+        //APP1 segment right after the start of image marker, its payload ending in a complete JPEG
+        byte[] exif = "Exif\0\0".getBytes(StandardCharsets.ISO_8859_1);
+        int length = 2 + exif.length + thumbnail.size();
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        frame.write(main.toByteArray(), 0, 2);
+        frame.write(new byte[]{(byte) 0xFF, (byte) 0xE1, (byte) (length >> 8), (byte) length});
+        frame.write(exif);
+        thumbnail.writeTo(frame);
+        frame.write(main.toByteArray(), 2, main.size() - 2);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        frame.writeTo(stream);
+        ImageIO.write(new BufferedImage(16, 32, BufferedImage.TYPE_INT_RGB), "jpg", stream);
+        InputStream in = new ByteArrayInputStream(stream.toByteArray());
+
+        Assertions.assertArrayEquals(frame.toByteArray(), MjpegFileCameraSource.nextJpeg(in));
+        Assertions.assertEquals(32, ImageIO.read(new ByteArrayInputStream(MjpegFileCameraSource.nextJpeg(in))).getHeight());
+        Assertions.assertNull(MjpegFileCameraSource.nextJpeg(in));
+    }
+
+    @Test
+    void nextJpeg_truncatedFrame_null() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(32, 16, BufferedImage.TYPE_INT_RGB), "jpg", stream);
+        byte[] bytes = stream.toByteArray();
+        InputStream in = new ByteArrayInputStream(bytes, 0, bytes.length / 2);
+
+        Assertions.assertNull(MjpegFileCameraSource.nextJpeg(in));
+    }
+
+    @Test
+    void startEncoded_recording_framesHandedOverWithTheirBytes() throws IOException, InterruptedException {
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(32, 16, BufferedImage.TYPE_INT_RGB), "jpg", first);
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(8, 24, BufferedImage.TYPE_INT_RGB), "jpg", second);
+        Path file = directory.resolve("front.mjpeg");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            first.writeTo(out);
+            second.writeTo(out);
+        }
+
+        List<BufferedImage> frames = new ArrayList<>(); //guarded by itself
+        List<byte[]> jpegs = new ArrayList<>(); //guarded by frames
+        MjpegFileCameraSource source = new MjpegFileCameraSource("front", file, 1000, false);
+        source.startEncoded((frame, jpeg) -> {
+            synchronized (frames) {
+                frames.add(frame);
+                jpegs.add(jpeg);
+            }
+        });
+        try {
+            awaitFrames(frames, 2);
+        } finally {
+            source.stop();
+        }
+        synchronized (frames) {
+            Assertions.assertEquals(32, frames.get(0).getWidth());
+            Assertions.assertArrayEquals(first.toByteArray(), jpegs.get(0));
+            Assertions.assertArrayEquals(second.toByteArray(), jpegs.get(1));
+        }
+    }
+
+    private static void awaitFrames(List<BufferedImage> frames, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(true) {
+            synchronized (frames) {
+                if(frames.size() >= count) {
+                    return;
+                }
+            }
+            Assertions.assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void start_corruptFrameBetweenGoodOnes_skippedAndPlaybackGoesOn() throws IOException, InterruptedException {
+        ByteArrayOutputStream good = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(32, 16, BufferedImage.TYPE_INT_RGB), "jpg", good);
+        byte[] corrupt = good.toByteArray();
+        int table = 2;
+        while(!(corrupt[table] == (byte) 0xFF && corrupt[table + 1] == (byte) 0xC4)) {
+            table++;
+        }
+        corrupt[table + 5] = (byte) 0xFF; //more one bit codes than a Huffman table can have
+        Assertions.assertThrows(IOException.class, () -> ImageIO.read(new ByteArrayInputStream(corrupt)));
+        Path file = directory.resolve("front.mjpeg");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            good.writeTo(out);
+            out.write(corrupt);
+            good.writeTo(out);
+        }
+
+        List<BufferedImage> frames = new ArrayList<>(); //guarded by itself
+        MjpegFileCameraSource source = new MjpegFileCameraSource("front", file, 1000, true);
+        source.start(frame -> {
+            synchronized (frames) {
+                frames.add(frame);
+            }
+        });
+        try {
+            awaitFrames(frames, 5); //both good frames, and on into the next loop
+        } finally {
+            source.stop();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package catpoint.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class LogFileSecurityRepositoryImplTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopen_stateWrittenBeforeClose_stateIsRecovered() {
+        LogFileSecurityRepositoryImpl repository = new LogFileSecurityRepositoryImpl(directory);
+        Sensor frontDoor = new Sensor("Front Door", SensorType.DOOR);
+        Sensor backWindow = new Sensor("Back Window", SensorType.WINDOW);
+        repository.addSensor(frontDoor);
+        repository.addSensor(backWindow);
+        frontDoor.setActive(true);
+        repository.updateSensor(frontDoor);
+        repository.removeSensor(backWindow);
+        repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        repository.close();
+
+        LogFileSecurityRepositoryImpl reopened = new LogFileSecurityRepositoryImpl(directory);
+        Assertions.assertEquals(ArmingStatus.ARMED_AWAY, reopened.getArmingStatus());
+        Assertions.assertEquals(AlarmStatus.PENDING_ALARM, reopened.getAlarmStatus());
+        Assertions.assertEquals(1, reopened.getSensors().size());
+        Sensor recovered = reopened.getSensors().iterator().next();
+        Assertions.assertEquals(frontDoor, recovered);
+        Assertions.assertEquals("Front Door", recovered.getName());
+        Assertions.assertTrue(recovered.getActive());
+        reopened.close();
+    }
+
+    @Test
+    void reopen_logEndsWithTornRecord_lastCompleteChangeIsRecovered() throws IOException {
+        LogFileSecurityRepositoryImpl repository = new LogFileSecurityRepositoryImpl(directory);
+        repository.setAlarmStatus(AlarmStatus.ALARM);
+        repository.close();
+        Files.write(directory.resolve("security.log"), new byte[]{0, 0, 0, 9, 1, 0}, StandardOpenOption.APPEND);
+
+        LogFileSecurityRepositoryImpl reopened = new LogFileSecurityRepositoryImpl(directory);
+        Assertions.assertEquals(AlarmStatus.ALARM, reopened.getAlarmStatus());
+        reopened.setAlarmStatus(AlarmStatus.NO_ALARM);
+        reopened.close();
+
+        LogFileSecurityRepositoryImpl again = new LogFileSecurityRepositoryImpl(directory);
+        Assertions.assertEquals(AlarmStatus.NO_ALARM, again.getAlarmStatus());
+        again.close();
+    }
+
+    private static void awaitFile(Path file, long minimumSize) throws InterruptedException, IOException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while(!Files.exists(file) || Files.size(file) < minimumSize) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for " + file);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void compaction_manyWrites_snapshotReplacesLog() throws InterruptedException, IOException {
+        LogFileSecurityRepositoryImpl repository = new LogFileSecurityRepositoryImpl(directory, 1, 10);
+        Sensor motion = new Sensor("Hall", SensorType.MOTION);
+        repository.addSensor(motion);
+        for(int i = 0; i < 50; i++) {
+            motion.setActive(i % 2 == 0);
+            repository.updateSensor(motion);
+        }
+        awaitFile(directory.resolve("security.snapshot"), 1);
+        repository.close();
+
+        LogFileSecurityRepositoryImpl reopened = new LogFileSecurityRepositoryImpl(directory);
+        Assertions.assertEquals(1, reopened.getSensors().size());
+        Assertions.assertFalse(reopened.getSensors().iterator().next().getActive());
+        reopened.close();
+    }
+
+    @Test
+    void compaction_snapshotCannotBeWritten_laterChangesAreStillCommitted() throws InterruptedException, IOException {
+        //a directory in the way of the temporary snapshot file makes every compaction fail
+        Path blocker = Files.createDirectories(directory.resolve("security.snapshot.tmp"));
+        LogFileSecurityRepositoryImpl repository = new LogFileSecurityRepositoryImpl(directory, 1, 1);
+        Path log = directory.resolve("security.log");
+        repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        awaitFile(log, 1);
+        long afterFirst = Files.size(log);
+        repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+        awaitFile(log, afterFirst + 1);
+
+        Files.delete(blocker);
+        awaitFile(directory.resolve("security.snapshot"), 1);
+        repository.close();
+
+        LogFileSecurityRepositoryImpl reopened = new LogFileSecurityRepositoryImpl(directory);
+        Assertions.assertEquals(AlarmStatus.PENDING_ALARM, reopened.getAlarmStatus());
+        Assertions.assertEquals(ArmingStatus.ARMED_HOME, reopened.getArmingStatus());
+        reopened.close();
+    }
+}
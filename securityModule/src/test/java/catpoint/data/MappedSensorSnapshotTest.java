@@ -0,0 +1,53 @@
+package catpoint.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class MappedSensorSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void open_snapshotWritten_sensorsDecodeUnchanged() throws IOException {
+        Sensor kitchen = new Sensor("Kitchen Window", SensorType.WINDOW);
+        Sensor porch = new Sensor("P\u00f6rch", SensorType.MOTION);
+        porch.setActive(true);
+        Path file = directory.resolve("sensors.snapshot");
+        MappedSensorSnapshot.write(file, List.of(kitchen, porch), 42L);
+
+        MappedSensorSnapshot snapshot = MappedSensorSnapshot.open(file);
+        Assertions.assertEquals(42L, snapshot.getStamp());
+        Assertions.assertEquals(2, snapshot.size());
+        Sensor decoded = snapshot.get(1);
+        Assertions.assertEquals(porch, decoded);
+        Assertions.assertEquals("P\u00f6rch", decoded.getName());
+        Assertions.assertEquals(SensorType.MOTION, decoded.getSensorType());
+        Assertions.assertTrue(decoded.getActive());
+        Assertions.assertFalse(snapshot.get(0).getActive());
+    }
+
+    @Test
+    void snapshotSensorSet_modifiedAfterLoad_behavesLikeTreeSet() throws IOException {
+        Set<Sensor> sensors = new TreeSet<>();
+        sensors.add(new Sensor("B", SensorType.DOOR));
+        sensors.add(new Sensor("A", SensorType.DOOR));
+        Path file = directory.resolve("sensors.snapshot");
+        MappedSensorSnapshot.write(file, sensors, 1L);
+
+        SnapshotSensorSet loaded = new SnapshotSensorSet(MappedSensorSnapshot.open(file));
+        Assertions.assertEquals(2, loaded.size());
+        Sensor added = new Sensor("C", SensorType.MOTION);
+        loaded.add(added);
+        Assertions.assertEquals(3, loaded.size());
+        Assertions.assertEquals("A", loaded.iterator().next().getName());
+        Assertions.assertTrue(loaded.contains(added));
+    }
+}
@@ -0,0 +1,107 @@
+package catpoint.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+public class SensorIndexTest {
+
+    @Test
+    void put_activationChanged_sortedViewReused() {
+        SensorIndex index = new SensorIndex();
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        index.put(door);
+        index.put(new Sensor("Window", SensorType.WINDOW));
+        Set<Sensor> sorted = index.sorted();
+
+        door.setActive(true);
+        index.put(door);
+
+        Assertions.assertSame(sorted, index.sorted());
+        Assertions.assertSame(door, index.get(door.getSensorId()));
+    }
+
+    @Test
+    void put_renamed_sortedViewReordered() {
+        SensorIndex index = new SensorIndex();
+        Sensor first = new Sensor("A", SensorType.DOOR);
+        Sensor second = new Sensor("B", SensorType.DOOR);
+        index.put(first);
+        index.put(second);
+        index.sorted();
+
+        first.setName("C");
+        index.put(first);
+
+        Assertions.assertEquals(List.of("B", "C"), index.sorted().stream().map(Sensor::getName).collect(Collectors.toList()));
+    }
+
+    @Test
+    void remove_loadedSensors_lookupAndSizeFollowChanges() {
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        Sensor motion = new Sensor("Motion", SensorType.MOTION);
+        SensorIndex index = new SensorIndex(new TreeSet<>(List.of(door, motion)));
+        Assertions.assertEquals(2, index.size());
+
+        index.remove(door.getSensorId());
+
+        Assertions.assertNull(index.get(door.getSensorId()));
+        Assertions.assertSame(motion, index.get(motion.getSensorId()));
+        Assertions.assertEquals(Set.of(motion), index.sorted());
+        Assertions.assertEquals(1, index.values().size());
+    }
+
+    @Test
+    void activeCount_sensorsToggledAndRemoved_countsFollow() {
+        SensorIndex index = new SensorIndex();
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        Sensor window = new Sensor("Window", SensorType.WINDOW);
+        index.put(door);
+        index.put(window);
+
+        door.setActive(true);
+        index.put(door);
+        window.setActive(true);
+        index.put(window);
+        index.put(window);
+
+        Assertions.assertEquals(2, index.activeCount());
+        Assertions.assertEquals(1, index.activeCount(SensorType.DOOR));
+        Assertions.assertEquals(0, index.activeCount(SensorType.MOTION));
+
+        index.remove(door.getSensorId());
+        window.setActive(false);
+        index.put(window);
+
+        Assertions.assertEquals(0, index.activeCount());
+        Assertions.assertEquals(0, index.activeCount(SensorType.DOOR));
+    }
+
+    @Test
+    void activeSensors_slotsReused_onlyActiveSensorsListed() {
+        SensorIndex index = new SensorIndex();
+        List<Sensor> sensors = new ArrayList<>();
+        for(int i = 0; i < 200; i++) {
+            Sensor sensor = new Sensor("Sensor " + i, SensorType.values()[i % 3]);
+            sensor.setActive(i % 10 == 0);
+            index.put(sensor);
+            sensors.add(sensor);
+        }
+        index.remove(sensors.get(0).getSensorId());
+        Sensor replacement = new Sensor("Replacement", SensorType.MOTION);
+        replacement.setActive(true);
+        index.put(replacement);
+
+        Set<Sensor> expected = new HashSet<>();
+        sensors.stream().skip(1).filter(Sensor::getActive).forEach(expected::add);
+        expected.add(replacement);
+        Assertions.assertEquals(expected, new HashSet<>(index.activeSensors()));
+        Assertions.assertEquals(expected.size(), index.activeCount());
+    }
+}
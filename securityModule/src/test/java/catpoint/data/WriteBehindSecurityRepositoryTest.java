@@ -0,0 +1,121 @@
+package catpoint.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WriteBehindSecurityRepositoryTest {
+
+    private static final long NEVER = 3_600_000; //flush interval that never elapses during a test
+
+    @TempDir
+    Path directory;
+
+    private CountingRepository stored;
+
+    @BeforeEach
+    void init() {
+        stored = new CountingRepository(directory);
+    }
+
+    @AfterEach
+    void close() {
+        stored.close();
+    }
+
+    @Test
+    void flush_manyChangesToSameState_writtenOnce() {
+        WriteBehindSecurityRepository repository = new WriteBehindSecurityRepository(stored, NEVER, 1_000);
+        Sensor door = new Sensor("Door", SensorType.DOOR);
+        repository.addSensor(door);
+        for(int i = 0; i < 100; i++) {
+            door.setActive(i % 2 == 0);
+            repository.updateSensor(door);
+            repository.setAlarmStatus(i % 2 == 0 ? AlarmStatus.PENDING_ALARM : AlarmStatus.NO_ALARM);
+        }
+        Assertions.assertEquals(0, stored.writes.get());
+        Assertions.assertTrue(stored.getSensors().isEmpty());
+
+        repository.flush();
+
+        Assertions.assertEquals(2, stored.writes.get()); //one sensor put, one alarm status
+        Assertions.assertEquals(AlarmStatus.NO_ALARM, stored.getAlarmStatus());
+        Assertions.assertFalse(stored.findSensor(door.getSensorId()).getActive());
+        Assertions.assertEquals(0, repository.getPendingCount());
+        repository.shutdown();
+    }
+
+    @Test
+    void addSensor_thresholdReached_writtenInBackground() throws InterruptedException {
+        WriteBehindSecurityRepository repository = new WriteBehindSecurityRepository(stored, NEVER, 5);
+        for(int i = 0; i < 5; i++) {
+            repository.addSensor(new Sensor("Window " + i, SensorType.WINDOW));
+        }
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while(stored.getSensors().size() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals(5, stored.getSensors().size());
+        repository.shutdown();
+    }
+
+    @Test
+    void removeSensor_addedSinceLastFlush_neverWritten() {
+        WriteBehindSecurityRepository repository = new WriteBehindSecurityRepository(stored, NEVER, 1_000);
+        Sensor motion = new Sensor("Motion", SensorType.MOTION);
+        repository.addSensor(motion);
+        repository.removeSensor(motion);
+        repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        repository.shutdown();
+
+        Assertions.assertEquals(1, stored.writes.get());
+        Assertions.assertEquals(ArmingStatus.ARMED_HOME, stored.getArmingStatus());
+        Assertions.assertTrue(repository.getSensors().isEmpty());
+    }
+
+    private static class CountingRepository extends LogFileSecurityRepositoryImpl {
+        private final AtomicInteger writes = new AtomicInteger();
+
+        private CountingRepository(Path directory) {
+            super(directory);
+        }
+
+        @Override
+        public synchronized void addSensor(Sensor sensor) {
+            writes.incrementAndGet();
+            super.addSensor(sensor);
+        }
+
+        @Override
+        public synchronized void removeSensor(Sensor sensor) {
+            writes.incrementAndGet();
+            super.removeSensor(sensor);
+        }
+
+        @Override
+        public synchronized void updateSensors(Collection<Sensor> changed) {
+            writes.addAndGet(changed.size());
+            changed.forEach(super::updateSensor);
+        }
+
+        @Override
+        public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+            writes.incrementAndGet();
+            super.setAlarmStatus(alarmStatus);
+        }
+
+        @Override
+        public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+            writes.incrementAndGet();
+            super.setArmingStatus(armingStatus);
+        }
+    }
+}
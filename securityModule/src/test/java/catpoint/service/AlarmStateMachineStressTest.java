@@ -0,0 +1,160 @@
+package catpoint.service;
+
+import catpoint.data.AlarmStatus;
+import catpoint.data.ArmingStatus;
+import catpoint.data.LogFileSecurityRepositoryImpl;
+import catpoint.data.Sensor;
+import catpoint.data.SensorType;
+import catpoint.data.service.FakeImageService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the state machine and the service from many threads at once. Each test repeats its
+ * race enough times that a check-then-act bug would show up as a lost transition.
+ */
+public class AlarmStateMachineStressTest {
+
+    private static final int THREADS = 8;
+    private static final int TRANSITIONS_PER_THREAD = 20_000;
+    private static final int ROUNDS = 2_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void transition_manyThreads_everyChangeGetsItsOwnVersion() throws Exception {
+        AlarmStateMachine stateMachine = new AlarmStateMachine(ArmingStatus.DISARMED, AlarmStatus.NO_ALARM);
+        boolean[][] seen = new boolean[THREADS][];
+        runConcurrently(THREADS, thread -> {
+            List<Long> versions = new ArrayList<>();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for(int i = 0; i < TRANSITIONS_PER_THREAD; i++) {
+                AlarmStatus alarmStatus = AlarmStatus.values()[random.nextInt(AlarmStatus.values().length)];
+                ArmingStatus armingStatus = ArmingStatus.values()[random.nextInt(ArmingStatus.values().length)];
+                AlarmStateMachine.Transition transition = stateMachine.transition(state -> state.withArmingStatus(armingStatus).withAlarmStatus(alarmStatus));
+                if(transition.isChanged()) {
+                    Assertions.assertEquals(transition.getPrevious().getVersion() + 1, transition.getCurrent().getVersion());
+                    versions.add(transition.getCurrent().getVersion());
+                }
+            }
+            seen[thread] = toFlags(versions); //published to the test thread by join
+        });
+
+        //every version from 1 to the final one was produced by exactly one thread
+        long last = stateMachine.current().getVersion();
+        for(long version = 1; version <= last; version++) {
+            int producers = 0;
+            for(boolean[] flags : seen) {
+                if(version < flags.length && flags[(int) version]) {
+                    producers++;
+                }
+            }
+            Assertions.assertEquals(1, producers, "version " + version);
+        }
+    }
+
+    @Test
+    void handleSensorDeactivated_twoThreadsFromAlarm_bothStepsApplied() throws Exception {
+        LogFileSecurityRepositoryImpl repository = new LogFileSecurityRepositoryImpl(directory);
+        AlarmStateMachine stateMachine = new AlarmStateMachine(ArmingStatus.ARMED_HOME, AlarmStatus.NO_ALARM);
+        SecurityService securityService = new SecurityService(repository, new FakeImageService(), null,
+                StatusListenerDispatcher.synchronous(), stateMachine);
+        try {
+            for(int round = 0; round < ROUNDS; round++) {
+                securityService.setAlarmStatus(AlarmStatus.ALARM);
+                runConcurrently(2, thread -> securityService.handleSensorDeactivated());
+
+                //ALARM -> PENDING_ALARM -> NO_ALARM, neither step may be lost
+                Assertions.assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus(), "round " + round);
+                Assertions.assertEquals(AlarmStatus.NO_ALARM, repository.getAlarmStatus(), "round " + round);
+            }
+        } finally {
+            repository.close();
+        }
+    }
+
+    @Test
+    void mixedEvents_manyThreads_repositoryMatchesStateMachine() throws Exception {
+        LogFileSecurityRepositoryImpl repository = new LogFileSecurityRepositoryImpl(directory);
+        AlarmStateMachine stateMachine = new AlarmStateMachine(ArmingStatus.DISARMED, AlarmStatus.NO_ALARM);
+        SecurityService securityService = new SecurityService(repository, new FakeImageService(), null,
+                StatusListenerDispatcher.synchronous(), stateMachine);
+        try {
+            runConcurrently(THREADS, thread -> {
+                Sensor sensor = new Sensor("Sensor " + thread, SensorType.DOOR);
+                securityService.addSensor(sensor);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for(int i = 0; i < TRANSITIONS_PER_THREAD / 10; i++) {
+                    switch(random.nextInt(4)) {
+                        case 0 -> securityService.setArmingStatus(ArmingStatus.values()[random.nextInt(ArmingStatus.values().length)]);
+                        case 1 -> securityService.changeSensorActivationStatus(sensor, random.nextBoolean());
+                        case 2 -> securityService.catDetected(random.nextBoolean());
+                        default -> securityService.handleSensorDeactivated();
+                    }
+                }
+            });
+
+            SystemState state = stateMachine.current();
+            Assertions.assertEquals(state.getAlarmStatus(), repository.getAlarmStatus());
+            Assertions.assertEquals(state.getArmingStatus(), repository.getArmingStatus());
+        } finally {
+            repository.close();
+        }
+    }
+
+    private static boolean[] toFlags(List<Long> versions) {
+        long max = versions.stream().mapToLong(Long::longValue).max().orElse(0);
+        boolean[] flags = new boolean[(int) max + 1];
+        versions.forEach(version -> {
+            Assertions.assertFalse(flags[version.intValue()], "duplicate version " + version);
+            flags[version.intValue()] = true;
+        });
+        return flags;
+    }
+
+    private interface Worker {
+        void run(int thread) throws Exception;
+    }
+
+    /**
+     * Starts the workers together and rethrows the first failure.
+     */
+    private static void runConcurrently(int threadCount, Worker worker) throws Exception {
+        CyclicBarrier start = new CyclicBarrier(threadCount);
+        Throwable[] failure = new Throwable[1];
+        List<Thread> threads = new ArrayList<>();
+        for(int i = 0; i < threadCount; i++) {
+            int thread = i;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    worker.run(thread);
+                } catch (Throwable throwable) {
+                    synchronized (failure) {
+                        if(failure[0] == null) {
+                            failure[0] = throwable;
+                        }
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for(Thread thread : threads) {
+            thread.join(TimeUnit.MINUTES.toMillis(1));
+        }
+        if(failure[0] instanceof Exception) {
+            throw (Exception) failure[0];
+        } else if(failure[0] != null) {
+            throw (Error) failure[0];
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package catpoint.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import service.ImageServiceInterface;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ImageAnalysisPipelineTest {
+
+    /**
+     * Image service whose first call blocks until released, so later frames pile up into one batch.
+     * A frame contains a cat if it is wider than high; batches at a failing threshold throw.
+     */
+    private static class BlockingImageService implements ImageServiceInterface {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final float failingThreshhold;
+        private final List<String> batches = new ArrayList<>();
+
+        private BlockingImageService(float failingThreshhold) {
+            this.failingThreshhold = failingThreshhold;
+        }
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+            entered.countDown();
+            try {
+                Assertions.assertTrue(release.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException exception) {
+                throw new IllegalStateException(exception);
+            }
+            return image.getWidth() > image.getHeight();
+        }
+
+        @Override
+        public synchronized List<Boolean> imagesContainCat(List<BufferedImage> images, float confidenceThreshhold) {
+            batches.add(confidenceThreshhold + "x" + images.size());
+            if(confidenceThreshhold == failingThreshhold) {
+                throw new IllegalStateException("service down for " + confidenceThreshhold);
+            }
+            List<Boolean> verdicts = new ArrayList<>();
+            images.forEach(image -> verdicts.add(image.getWidth() > image.getHeight()));
+            return verdicts;
+        }
+    }
+
+    private static BufferedImage cat() {
+        return new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB);
+    }
+
+    private static BufferedImage noCat() {
+        return new BufferedImage(2, 4, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Test
+    void submit_framesQueuedTogether_batchedByThreshholdInOrder() throws InterruptedException {
+        BlockingImageService imageService = new BlockingImageService(-1);
+        ImageAnalysisPipeline pipeline = new ImageAnalysisPipeline(imageService, 1, 16, 8);
+        CompletableFuture<Boolean> first = pipeline.submit(cat(), 50f);
+        Assertions.assertTrue(imageService.entered.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Boolean> a = pipeline.submit(noCat(), 50f);
+        CompletableFuture<Boolean> b = pipeline.submit(cat(), 80f);
+        CompletableFuture<Boolean> c = pipeline.submit(cat(), 50f);
+        CompletableFuture<Boolean> d = pipeline.submit(noCat(), 80f);
+        imageService.release.countDown();
+
+        Assertions.assertTrue(first.join());
+        Assertions.assertEquals(List.of(false, true, true, false), List.of(a.join(), b.join(), c.join(), d.join()));
+        Assertions.assertEquals(List.of("50.0x2", "80.0x2"), imageService.batches);
+        pipeline.shutdown();
+    }
+
+    @Test
+    void submit_batchFails_onlyFramesOfThatBatchFail() throws InterruptedException {
+        BlockingImageService imageService = new BlockingImageService(80f);
+        ImageAnalysisPipeline pipeline = new ImageAnalysisPipeline(imageService, 1, 16, 8);
+        pipeline.submit(cat(), 50f);
+        Assertions.assertTrue(imageService.entered.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Boolean> a = pipeline.submit(cat(), 50f);
+        CompletableFuture<Boolean> b = pipeline.submit(cat(), 80f);
+        CompletableFuture<Boolean> c = pipeline.submit(noCat(), 50f);
+        imageService.release.countDown();
+
+        Assertions.assertTrue(a.join());
+        Assertions.assertFalse(c.join());
+        CompletionException failure = Assertions.assertThrows(CompletionException.class, b::join);
+        Assertions.assertEquals("service down for 80.0", failure.getCause().getMessage());
+        pipeline.shutdown();
+    }
+
+    @Test
+    void submit_serviceReturnsTooFewVerdicts_batchFails() throws InterruptedException {
+        BlockingImageService imageService = new BlockingImageService(-1) {
+            @Override
+            public synchronized List<Boolean> imagesContainCat(List<BufferedImage> images, float confidenceThreshhold) {
+                return List.of(true);
+            }
+        };
+        ImageAnalysisPipeline pipeline = new ImageAnalysisPipeline(imageService, 1, 16, 8);
+        pipeline.submit(cat(), 50f);
+        Assertions.assertTrue(imageService.entered.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Boolean> a = pipeline.submit(cat(), 50f);
+        CompletableFuture<Boolean> b = pipeline.submit(cat(), 50f);
+        imageService.release.countDown();
+
+        Assertions.assertThrows(CompletionException.class, a::join);
+        Assertions.assertThrows(CompletionException.class, b::join);
+        pipeline.shutdown();
+    }
+}
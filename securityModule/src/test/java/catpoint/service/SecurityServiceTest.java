@@ -11,8 +11,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.junit.jupiter.api.extension.ExtendWith;
 import service.ImageServiceInterface;
 import org.junit.jupiter.params.ParameterizedTest;
+import java.awt.Color;
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import static org.mockito.Mockito.*;
 
@@ -127,6 +130,32 @@ public class SecurityServiceTest {
         Assertions.assertEquals(AlarmStatus.NO_ALARM, securityService.noCatNoAlarmSet(catDetected,theSensors));
     }
     @Test
+    void noAlarmSet_repositoryCountsActiveSensor_ReturnPendingWithoutScanning()
+    {
+        when(repository.getActiveSensorCount()).thenReturn(1);
+        Assertions.assertEquals(AlarmStatus.PENDING_ALARM, securityService.noAlarmSet(AlarmStatus.PENDING_ALARM));
+        verify(repository, never()).getSensors();
+        verify(repository, never()).noAlarmStatus(any(), any());
+    }
+    @Test
+    void noCatNoAlarmSet_noActiveSensors_ReturnNoAlarm()
+    {
+        when(repository.getActiveSensorCount()).thenReturn(0);
+        Assertions.assertEquals(AlarmStatus.NO_ALARM, securityService.noCatNoAlarmSet(false));
+        verify(repository).setAlarmStatus(AlarmStatus.NO_ALARM);
+    }
+    @Test
+    void resetTheSensors_systemArmed_onlyActiveSensorsWritten()
+    {
+        Sensor activeSensor = new Sensor("Garage", SensorType.DOOR);
+        activeSensor.setActive(true);
+        when(repository.getActiveSensors()).thenReturn(List.of(activeSensor));
+        securityService.resetTheSensors(ArmingStatus.ARMED_AWAY);
+        Assertions.assertFalse(activeSensor.getActive());
+        verify(repository, times(1)).updateSensors(List.of(activeSensor));
+        verify(repository, never()).updateSensor(any(Sensor.class));
+    }
+    @Test
     void noAlarm_systemDisarmed_ReturnNoAlarm() // TEST 9
     {
         ArmingStatus armingStatus = ArmingStatus.DISARMED;
@@ -161,12 +190,128 @@ public class SecurityServiceTest {
         verify(repository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
     }
     @Test
+    void processImageAsync_catFound_alarmSetWhenVerdictArrives()
+    {
+        BufferedImage catImage = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        when(imageServiceInterface.imageContainsCat(any(), anyFloat())).thenReturn(true);
+        Assertions.assertEquals(AlarmStatus.ALARM, securityService.processImageAsync(catImage).join());
+        verify(repository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
+        securityService.shutdown();
+    }
+    @Test
+    void processImage_sameFrameTwice_secondFrameNotAnalyzed()
+    {
+        BufferedImage catImage = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        when(imageServiceInterface.imageContainsCat(any(), anyFloat())).thenReturn(true);
+        securityService.processImage(catImage);
+        securityService.processImage(catImage);
+        verify(imageServiceInterface, times(1)).imageContainsCat(any(), anyFloat());
+        verify(repository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
+    }
+    @Test
+    void processImage_sameCatFrameAfterRearming_verdictAppliedAgainWithoutAnalysis()
+    {
+        BufferedImage catImage = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        when(imageServiceInterface.imageContainsCat(any(), anyFloat())).thenReturn(true);
+        securityService.setArmingStatus(ArmingStatus.DISARMED);
+        securityService.processImage(catImage);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        securityService.processImage(catImage);
+        securityService.processImage(catImage);
+        verify(imageServiceInterface, times(1)).imageContainsCat(any(), anyFloat());
+        verify(repository, times(2)).setAlarmStatus(AlarmStatus.ALARM);
+    }
+    @Test
+    void cameraVerdict_catSeenBeforeArming_alarmRaisedAgainOnceArmed()
+    {
+        Assertions.assertEquals(AlarmStatus.ALARM, securityService.cameraVerdict("front", true));
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        securityService.cameraVerdict("front", true);
+        securityService.cameraVerdict("front", true);
+        verify(repository, times(2)).setAlarmStatus(AlarmStatus.ALARM);
+    }
+    @Test
+    void processImage_sceneChanges_frameAnalyzedAgain()
+    {
+        BufferedImage emptyRoom = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        BufferedImage brightRoom = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = brightRoom.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(64, 64, 128, 128);
+        graphics.dispose();
+        when(imageServiceInterface.imageContainsCat(any(), anyFloat())).thenReturn(false);
+        securityService.processImage(emptyRoom);
+        securityService.processImage(brightRoom);
+        verify(imageServiceInterface, times(2)).imageContainsCat(any(), anyFloat());
+    }
+    @Test
+    void processImage_voterNeedsTwoOfThree_singleCatFrameIgnored()
+    {
+        BufferedImage frame = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        securityService.setFrameDifferenceGate(null);
+        securityService.setVerdictVoter(new VerdictVoter(3, 2));
+        when(imageServiceInterface.imageContainsCat(any(), anyFloat())).thenReturn(true, false, true);
+        securityService.processImage(frame);
+        securityService.processImage(frame);
+        verify(repository, never()).setAlarmStatus(AlarmStatus.ALARM);
+        securityService.processImage(frame);
+        verify(repository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
+    }
+    @Test
+    void processImage_voterAndCameraNamedLikeImageFeed_votesKeptApart()
+    {
+        BufferedImage frame = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        securityService.setFrameDifferenceGate(null);
+        securityService.setVerdictVoter(new VerdictVoter(3, 3));
+        when(imageServiceInterface.imageContainsCat(any(), anyFloat())).thenReturn(true);
+        for(int i = 0; i < 3; i++) {
+            securityService.processImage(frame);
+            securityService.cameraVerdict("image", false);
+            securityService.cameraVerdict("local", false);
+        }
+        verify(repository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
+    }
+    @Test
+    void processImage_voterDecisionUnchangedAfterRearming_decisionAppliedAgain()
+    {
+        BufferedImage frame = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        securityService.setFrameDifferenceGate(null);
+        securityService.setVerdictVoter(new VerdictVoter(3, 2));
+        when(imageServiceInterface.imageContainsCat(any(), anyFloat())).thenReturn(true);
+        securityService.setArmingStatus(ArmingStatus.DISARMED);
+        securityService.processImage(frame);
+        securityService.processImage(frame);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        securityService.processImage(frame);
+        securityService.processImage(frame);
+        verify(repository, times(2)).setAlarmStatus(AlarmStatus.ALARM);
+    }
+    @Test
+    void processImage_thresholdConfigured_thresholdPassedToImageService()
+    {
+        BufferedImage frame = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        securityService.setConfidenceThreshhold(80.0f);
+        securityService.processImage(frame);
+        verify(imageServiceInterface).imageContainsCat(frame, 80.0f);
+    }
+    @Test
     void setArmingStatus_changeArmingStatus_returnChangedArmingStatus()
     {
        securityService.setArmingStatus(ArmingStatus.DISARMED);
        verify(repository).setAlarmStatus(AlarmStatus.NO_ALARM);
     }
     @ParameterizedTest
+    @EnumSource(value = ArmingStatus.class, names = {"ARMED_HOME", "ARMED_AWAY"})
+    void setArmingStatus_systemArmed_activeSensorsResetInOneBatch(ArmingStatus armingStatus)
+    {
+        Sensor activeSensor = new Sensor("Garage", SensorType.DOOR);
+        activeSensor.setActive(true);
+        when(repository.getActiveSensors()).thenReturn(List.of(activeSensor));
+        securityService.setArmingStatus(armingStatus);
+        Assertions.assertFalse(activeSensor.getActive());
+        verify(repository).updateSensors(List.of(activeSensor));
+    }
+    @ParameterizedTest
     @EnumSource(value = AlarmStatus.class, names = {"PENDING_ALARM", "ALARM"})
     void handleSensorDeactvated_runSensorDeactivated(AlarmStatus alarmStatus)
     {
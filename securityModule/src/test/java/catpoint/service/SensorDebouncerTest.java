@@ -0,0 +1,96 @@
+package catpoint.service;
+
+import catpoint.data.Sensor;
+import catpoint.data.SensorType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+public class SensorDebouncerTest {
+
+    private static final long LONG_WINDOW = 60_000; //never expires during a test, windows are closed with flush
+
+    private final Sensor door = new Sensor("Front Door", SensorType.DOOR);
+    private final Sensor motion = new Sensor("Hallway", SensorType.MOTION);
+    private final Map<UUID, Sensor> sensors = Map.of(door.getSensorId(), door, motion.getSensorId(), motion);
+    private final List<SensorEvent> forwarded = new CopyOnWriteArrayList<>();
+    private final SensorDebouncer debouncer = new SensorDebouncer(forwarded::add, sensors::get, LONG_WINDOW);
+
+    @AfterEach
+    void close() {
+        debouncer.shutdown();
+    }
+
+    @Test
+    void accept_burstEndsInNewState_onlyLatestEventForwarded() {
+        debouncer.accept(new SensorEvent(door.getSensorId(), true, 1));
+        debouncer.accept(new SensorEvent(door.getSensorId(), false, 2));
+        debouncer.accept(new SensorEvent(door.getSensorId(), true, 3));
+        Assertions.assertTrue(forwarded.isEmpty());
+
+        debouncer.flush();
+
+        Assertions.assertEquals(1, forwarded.size());
+        Assertions.assertEquals(3, forwarded.get(0).getTimestamp());
+        Assertions.assertEquals(2, debouncer.getSuppressedCount());
+    }
+
+    @Test
+    void accept_burstReturnsToStartingState_nothingForwarded() {
+        debouncer.accept(new SensorEvent(door.getSensorId(), true, 1));
+        debouncer.accept(new SensorEvent(door.getSensorId(), false, 2));
+        debouncer.flush();
+
+        Assertions.assertTrue(forwarded.isEmpty());
+        Assertions.assertEquals(2, debouncer.getSuppressedCount());
+    }
+
+    @Test
+    void accept_typeWithoutWindow_forwardedImmediately() {
+        debouncer.setWindow(SensorType.MOTION, 0);
+        debouncer.accept(new SensorEvent(motion.getSensorId(), true, 1));
+        debouncer.accept(new SensorEvent(door.getSensorId(), true, 1));
+
+        Assertions.assertEquals(List.of(motion.getSensorId()), forwarded.stream().map(SensorEvent::getSensorId).collect(Collectors.toList()));
+    }
+
+    @Test
+    void accept_windowExpires_eventForwardedWithoutFlush() throws InterruptedException {
+        debouncer.setSensorWindow(door.getSensorId(), 20);
+        debouncer.accept(new SensorEvent(door.getSensorId(), true, 1));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while(forwarded.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Assertions.assertEquals(1, forwarded.size());
+    }
+
+    @Test
+    void accept_afterShutdown_forwardedImmediately() {
+        debouncer.shutdown();
+        debouncer.accept(new SensorEvent(door.getSensorId(), true, 1));
+
+        Assertions.assertEquals(1, forwarded.size());
+        Assertions.assertEquals(1, debouncer.getForwardedCount());
+    }
+
+    @Test
+    void accept_sensorResetOutsideDebouncer_burstMeasuredAgainstResetState() {
+        debouncer.accept(new SensorEvent(door.getSensorId(), true, 1));
+        debouncer.flush();
+        door.setActive(true); //applied downstream
+
+        door.setActive(false); //reset on arming, without an event
+        debouncer.accept(new SensorEvent(door.getSensorId(), true, 2));
+        debouncer.flush();
+
+        Assertions.assertEquals(2, forwarded.size());
+    }
+}
@@ -0,0 +1,104 @@
+package catpoint.service;
+
+import catpoint.data.AlarmStatus;
+import catpoint.data.ArmingStatus;
+import catpoint.data.LogFileSecurityRepositoryImpl;
+import catpoint.data.Sensor;
+import catpoint.data.SensorType;
+import catpoint.data.service.FakeImageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class SensorEventIngestorTest {
+
+    @TempDir
+    Path directory;
+
+    private LogFileSecurityRepositoryImpl repository;
+    private SecurityService securityService;
+    private SensorEventIngestor ingestor;
+
+    @BeforeEach
+    void init() {
+        repository = new LogFileSecurityRepositoryImpl(directory);
+        securityService = new SecurityService(repository, new FakeImageService(), null,
+                StatusListenerDispatcher.synchronous(), AlarmStateMachine.loadFrom(repository));
+        ingestor = new SensorEventIngestor(securityService, 64, 16);
+    }
+
+    @AfterEach
+    void close() {
+        ingestor.shutdown();
+        repository.close();
+    }
+
+    @Test
+    void publish_eventsFromManyThreads_eachSensorEndsInItsLastState() throws InterruptedException {
+        List<Sensor> sensors = new ArrayList<>();
+        for(int i = 0; i < 8; i++) {
+            Sensor sensor = new Sensor("Door " + i, SensorType.DOOR);
+            securityService.addSensor(sensor);
+            sensors.add(sensor);
+        }
+
+        List<Thread> hubs = new ArrayList<>();
+        for(Sensor sensor : sensors) {
+            Thread hub = new Thread(() -> {
+                for(int t = 1; t <= 5_000; t++) {
+                    ingestor.publish(new SensorEvent(sensor.getSensorId(), t % 2 == 0, t)); //ends active
+                }
+            });
+            hubs.add(hub);
+            hub.start();
+        }
+        for(Thread hub : hubs) {
+            hub.join();
+        }
+        ingestor.flush();
+
+        Assertions.assertEquals(40_000, ingestor.getAppliedCount());
+        for(Sensor sensor : sensors) {
+            Assertions.assertTrue(sensor.getActive());
+            Assertions.assertTrue(repository.getSensors().stream()
+                    .filter(stored -> stored.getSensorId().equals(sensor.getSensorId()))
+                    .allMatch(Sensor::getActive));
+        }
+    }
+
+    @Test
+    void publish_olderEventAfterNewer_olderEventDropped() {
+        Sensor sensor = new Sensor("Window", SensorType.WINDOW);
+        securityService.addSensor(sensor);
+
+        ingestor.publish(new SensorEvent(sensor.getSensorId(), true, 200));
+        ingestor.publish(new SensorEvent(sensor.getSensorId(), false, 100));
+        ingestor.publish(new SensorEvent(UUID.randomUUID(), true, 300));
+        ingestor.flush();
+
+        Assertions.assertTrue(sensor.getActive());
+        Assertions.assertEquals(1, ingestor.getAppliedCount());
+        Assertions.assertEquals(2, ingestor.getDroppedCount());
+    }
+
+    @Test
+    void publish_inactiveSensorReportsWhilePending_alarmCleared() {
+        Sensor sensor = new Sensor("Motion", SensorType.MOTION);
+        securityService.addSensor(sensor);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        Assertions.assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+
+        ingestor.publish(new SensorEvent(sensor.getSensorId(), false, 1));
+        ingestor.flush();
+
+        Assertions.assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+        Assertions.assertEquals(AlarmStatus.NO_ALARM, repository.getAlarmStatus());
+    }
+}
@@ -0,0 +1,97 @@
+package catpoint.service;
+
+import catpoint.application.StatusListener;
+import catpoint.data.AlarmStatus;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+public class StatusListenerDispatcherTest {
+
+    private final Queue<Runnable> pendingTasks = new ArrayDeque<>();
+
+    private void runPendingTasks() {
+        while(!pendingTasks.isEmpty()) {
+            pendingTasks.poll().run();
+        }
+    }
+
+    @Test
+    void publish_severalEvents_listenerSeesThemInOrder() {
+        StatusListenerDispatcher dispatcher = new StatusListenerDispatcher(pendingTasks::add, false);
+        RecordingListener listener = new RecordingListener();
+        dispatcher.addStatusListener(listener);
+
+        dispatcher.notify(AlarmStatus.PENDING_ALARM);
+        dispatcher.catDetected(true);
+        dispatcher.notify(AlarmStatus.ALARM);
+        runPendingTasks();
+
+        Assertions.assertEquals(List.of("PENDING_ALARM", "cat=true", "ALARM"), listener.events);
+        Assertions.assertEquals(3, dispatcher.getLatency(listener).getDeliveries());
+    }
+
+    @Test
+    void publish_coalescingEnabled_undeliveredStatusesCollapseToLatest() {
+        StatusListenerDispatcher dispatcher = new StatusListenerDispatcher(pendingTasks::add, true);
+        RecordingListener listener = new RecordingListener();
+        dispatcher.addStatusListener(listener);
+
+        dispatcher.notify(AlarmStatus.PENDING_ALARM);
+        dispatcher.notify(AlarmStatus.ALARM);
+        dispatcher.catDetected(true);
+        dispatcher.notify(AlarmStatus.NO_ALARM);
+        dispatcher.notify(AlarmStatus.PENDING_ALARM);
+        runPendingTasks();
+
+        Assertions.assertEquals(List.of("ALARM", "cat=true", "PENDING_ALARM"), listener.events);
+    }
+
+    @Test
+    void publish_listenerThrows_laterEventsStillDelivered() {
+        StatusListenerDispatcher dispatcher = StatusListenerDispatcher.synchronous();
+        RecordingListener listener = new RecordingListener() {
+            @Override
+            public void catDetected(boolean catDetected) {
+                throw new IllegalStateException("listener failure");
+            }
+        };
+        dispatcher.addStatusListener(listener);
+
+        Thread.UncaughtExceptionHandler handler = Thread.currentThread().getUncaughtExceptionHandler();
+        List<Throwable> reported = new ArrayList<>();
+        Thread.currentThread().setUncaughtExceptionHandler((thread, throwable) -> reported.add(throwable));
+        try {
+            dispatcher.catDetected(true);
+            dispatcher.notify(AlarmStatus.ALARM);
+        } finally {
+            Thread.currentThread().setUncaughtExceptionHandler(handler);
+        }
+
+        Assertions.assertEquals(1, reported.size());
+        Assertions.assertEquals(List.of("ALARM"), listener.events);
+    }
+
+    private static class RecordingListener implements StatusListener {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void notify(AlarmStatus status) {
+            events.add(status.name());
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            events.add("cat=" + catDetected);
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            events.add("sensors");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package catpoint.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class VerdictVoterTest {
+
+    @Test
+    void vote_singleCatAmongNoCats_decisionUnchanged() {
+        VerdictVoter voter = new VerdictVoter(5, 3);
+
+        Assertions.assertNull(voter.vote("front", false));
+        Assertions.assertNull(voter.vote("front", true));
+        Assertions.assertNull(voter.vote("front", false));
+        Assertions.assertFalse(voter.isCat("front"));
+    }
+
+    @Test
+    void vote_quorumReached_decisionFlipsOnceEachWay() {
+        VerdictVoter voter = new VerdictVoter(3, 2);
+
+        Assertions.assertNull(voter.vote("front", true));
+        Assertions.assertEquals(Boolean.TRUE, voter.vote("front", true));
+        Assertions.assertNull(voter.vote("front", true));
+        Assertions.assertNull(voter.vote("front", false));
+        Assertions.assertEquals(Boolean.FALSE, voter.vote("front", false));
+    }
+
+    @Test
+    void vote_twoCameras_windowsIndependent() {
+        VerdictVoter voter = new VerdictVoter(3, 2);
+
+        voter.vote("front", true);
+        Assertions.assertNull(voter.vote("back", true));
+        Assertions.assertEquals(Boolean.TRUE, voter.vote("front", true));
+        Assertions.assertFalse(voter.isCat("back"));
+    }
+
+    @Test
+    void constructor_quorumNotMajority_throws() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new VerdictVoter(4, 2));
+    }
+}